@@ -0,0 +1,45 @@
+// 对数分桶的延迟直方图：相邻桶相差0.1%，与 HdrHistogram 3位有效数字的精度相当
+// 内存只与取值范围有关，与样本数无关
+
+const RATIO = 1.001
+const LOG_RATIO = Math.log(RATIO)
+
+export class Histogram {
+  constructor() {
+    this.buckets = new Map()
+    this.count = 0
+    this.max = 0
+  }
+
+  // 记录一个以微秒为单位的延迟
+  record(micros) {
+    const value = Math.max(1, Math.round(micros))
+    const index = Math.floor(Math.log(value) / LOG_RATIO)
+    this.buckets.set(index, (this.buckets.get(index) || 0) + 1)
+    this.count++
+    if (value > this.max) this.max = value
+  }
+
+  merge(other) {
+    for (const [index, n] of other.buckets) {
+      this.buckets.set(index, (this.buckets.get(index) || 0) + n)
+    }
+    this.count += other.count
+    this.max = Math.max(this.max, other.max)
+  }
+
+  // 返回第q分位（0~1）的延迟，单位微秒
+  percentile(q) {
+    if (this.count === 0) return 0
+    const target = Math.max(1, Math.ceil(q * this.count))
+    const indexes = [...this.buckets.keys()].sort((a, b) => a - b)
+    let seen = 0
+    for (const index of indexes) {
+      seen += this.buckets.get(index)
+      if (seen >= target) {
+        return Math.min(this.max, Math.round(Math.pow(RATIO, index + 1)))
+      }
+    }
+    return this.max
+  }
+}
@@ -0,0 +1,159 @@
+// 学生端接口压测
+// 开环调度：按固定到达率发请求，不等待前一个请求返回；延迟从“计划发出时间”开始计算，避免协调遗漏
+//
+// 用法：
+//   node loadtest/run.js --rate 200 --duration 60 --spike-at 40 --spike-duration 10 --out report.json
+//   node loadtest/run.js --compare platform.json virtual.json
+
+import { readFileSync, writeFileSync } from 'node:fs'
+import { performance } from 'node:perf_hooks'
+import { Histogram } from './histogram.js'
+import { createRandom } from './random.js'
+import { chooseScenario } from './workload.js'
+
+const parseArgs = (argv) => {
+  const args = {
+    baseUrl: process.env.LOADTEST_BASE_URL || 'http://localhost:8080',
+    token: process.env.LOADTEST_TOKEN || '',
+    rate: 100,          // 每秒到达的场景数
+    duration: 60,       // 秒
+    warmup: 10,         // 预热秒数，不计入统计
+    spikeAt: -1,        // 作业截止洪峰开始的秒数，-1表示没有洪峰
+    spikeDuration: 10,
+    seed: 42,
+    students: 1000,
+    homeworks: 20,
+    resources: 50,
+    thresholds: new URL('./thresholds.json', import.meta.url),
+    out: null,
+    compare: null
+  }
+  for (let i = 2; i < argv.length; i++) {
+    const key = argv[i].replace(/^--/, '').replace(/-([a-z])/g, (_, c) => c.toUpperCase())
+    if (key === 'compare') {
+      args.compare = [argv[++i], argv[++i]]
+    } else if (key in args) {
+      const value = argv[++i]
+      args[key] = typeof args[key] === 'number' ? Number(value) : value
+    } else {
+      throw new Error(`未知参数：${argv[i]}`)
+    }
+  }
+  return args
+}
+
+const send = async (args, request) => {
+  const headers = { 'Content-Type': 'application/json' }
+  if (args.token) headers.token = args.token
+  const response = await fetch(args.baseUrl + request.path, {
+    method: request.method,
+    headers,
+    body: request.body ? JSON.stringify(request.body) : undefined
+  })
+  const payload = await response.json().catch(() => null)
+  // 后端统一返回 Result，code为1表示成功
+  return response.ok && payload && payload.code === 1
+}
+
+const run = async (args) => {
+  const random = createRandom(args.seed)
+  const stats = new Map()
+  const statFor = (endpoint) => {
+    if (!stats.has(endpoint)) stats.set(endpoint, { histogram: new Histogram(), errors: 0 })
+    return stats.get(endpoint)
+  }
+
+  const interval = 1000 / args.rate
+  const total = Math.floor(args.rate * (args.warmup + args.duration))
+  const start = performance.now() + 100
+  const inFlight = new Set()
+
+  for (let i = 0; i < total; i++) {
+    const intended = start + i * interval
+    const delay = intended - performance.now()
+    if (delay > 1) await new Promise(resolve => setTimeout(resolve, delay))
+
+    const second = i / args.rate - args.warmup
+    const measured = second >= 0
+    const spike = args.spikeAt >= 0 && second >= args.spikeAt && second < args.spikeAt + args.spikeDuration
+    const scenario = chooseScenario(random, spike)
+    const ctx = { random, studentId: random.int(1, args.students), homeworks: args.homeworks, resources: args.resources }
+
+    for (const request of scenario.requests(ctx)) {
+      const task = send(args, request)
+        .catch(() => false)
+        .then(ok => {
+          if (!measured) return
+          const stat = statFor(request.endpoint)
+          stat.histogram.record((performance.now() - intended) * 1000)
+          if (!ok) stat.errors++
+        })
+      inFlight.add(task)
+      task.finally(() => inFlight.delete(task))
+    }
+  }
+  await Promise.all(inFlight)
+  return summarize(stats, args.duration)
+}
+
+const summarize = (stats, duration) => {
+  const report = {}
+  for (const [endpoint, { histogram, errors }] of [...stats].sort()) {
+    report[endpoint] = {
+      count: histogram.count,
+      throughput: +(histogram.count / duration).toFixed(1),
+      errorRate: histogram.count ? +(errors / histogram.count).toFixed(4) : 0,
+      p50Ms: histogram.percentile(0.5) / 1000,
+      p99Ms: histogram.percentile(0.99) / 1000,
+      p999Ms: histogram.percentile(0.999) / 1000,
+      maxMs: histogram.max / 1000
+    }
+  }
+  return report
+}
+
+const checkThresholds = (report, thresholds) => {
+  const failures = []
+  for (const [endpoint, row] of Object.entries(report)) {
+    const limit = { ...thresholds.default, ...(thresholds[endpoint] || {}) }
+    if (row.p99Ms > limit.p99Ms) failures.push(`${endpoint} p99 ${row.p99Ms}ms > ${limit.p99Ms}ms`)
+    if (row.errorRate > limit.errorRate) failures.push(`${endpoint} 错误率 ${row.errorRate} > ${limit.errorRate}`)
+  }
+  return failures
+}
+
+const compare = ([leftFile, rightFile]) => {
+  const left = JSON.parse(readFileSync(leftFile, 'utf8'))
+  const right = JSON.parse(readFileSync(rightFile, 'utf8'))
+  const rows = []
+  for (const endpoint of new Set([...Object.keys(left), ...Object.keys(right)])) {
+    const a = left[endpoint] || {}
+    const b = right[endpoint] || {}
+    rows.push({
+      endpoint,
+      [`p50 ${leftFile}`]: a.p50Ms, [`p50 ${rightFile}`]: b.p50Ms,
+      [`p99 ${leftFile}`]: a.p99Ms, [`p99 ${rightFile}`]: b.p99Ms,
+      [`p999 ${leftFile}`]: a.p999Ms, [`p999 ${rightFile}`]: b.p999Ms
+    })
+  }
+  console.table(rows)
+}
+
+const main = async () => {
+  const args = parseArgs(process.argv)
+  if (args.compare) {
+    compare(args.compare)
+    return
+  }
+  const report = await run(args)
+  console.table(report)
+  if (args.out) writeFileSync(args.out, JSON.stringify(report, null, 2))
+
+  const failures = checkThresholds(report, JSON.parse(readFileSync(args.thresholds, 'utf8')))
+  if (failures.length > 0) {
+    console.error('超出性能阈值：\n' + failures.join('\n'))
+    process.exitCode = 1
+  }
+}
+
+main()
@@ -0,0 +1,99 @@
+// 学生端请求模型，路径和参数与 src/api/student.js 保持一致
+// weight 为正常时段各场景的占比；submitHomework 在截止时段按 spikeFactor 放大
+
+const CATEGORIES = ['java', 'vue', 'database', 'other']
+
+export const scenarios = [
+  {
+    // 学习页面的心跳式学习记录，占绝大多数写请求
+    name: 'recordStudyBehavior',
+    weight: 50,
+    requests: (ctx) => [{
+      endpoint: 'recordStudyBehavior',
+      method: 'POST',
+      path: '/student/study/record',
+      body: {
+        studentId: ctx.studentId,
+        resourceId: ctx.random.int(1, ctx.resources),
+        resourceType: 'courseware',
+        studyDuration: 30,
+        progress: ctx.random.int(0, 100)
+      }
+    }]
+  },
+  {
+    // 打开首页时同时发出的一组统计请求
+    name: 'dashboard',
+    weight: 20,
+    requests: (ctx) => [
+      { endpoint: 'getStudentHomeBundle', method: 'GET', path: `/student/home/${ctx.studentId}?sections=homeStats,recentActivities` },
+      { endpoint: 'getHomeworkStats', method: 'GET', path: `/student/homework/stats/${ctx.studentId}` },
+      { endpoint: 'getInteractStats', method: 'GET', path: `/student/interact/stats/${ctx.studentId}` },
+      { endpoint: 'getRatingStats', method: 'GET', path: `/student/interact/rating/stats/${ctx.studentId}` }
+    ]
+  },
+  {
+    name: 'homeworkBrowse',
+    weight: 12,
+    requests: (ctx) => [
+      { endpoint: 'getHomeworkList', method: 'GET', path: `/student/homework/${ctx.studentId}` },
+      { endpoint: 'getHomeworkDetail', method: 'GET', path: `/student/homework/detail/${ctx.random.int(1, ctx.homeworks)}` }
+    ]
+  },
+  {
+    name: 'submitHomework',
+    weight: 5,
+    spikeFactor: 20,
+    requests: (ctx) => {
+      const answers = {}
+      for (let q = 1; q <= 10; q++) {
+        answers[q] = ctx.random.pick(['A', 'B', 'C', 'D', 'AB', '对', '错'])
+      }
+      return [{
+        endpoint: 'submitHomework',
+        method: 'POST',
+        path: '/student/homework/submit',
+        body: { homeworkId: ctx.random.int(1, ctx.homeworks), studentId: ctx.studentId, status: 1, answers }
+      }]
+    }
+  },
+  {
+    // AI对话：请求少但单次耗时长
+    name: 'aiChat',
+    weight: 5,
+    requests: (ctx) => [
+      { endpoint: 'chat', method: 'POST', path: '/student/study/chat', body: { message: '请解释一下Java中的多态' } },
+      {
+        endpoint: 'recordAiQuestion',
+        method: 'POST',
+        path: '/student/study/aiQuestion',
+        body: { studentId: ctx.studentId, question: '请解释一下Java中的多态', answer: '……', category: ctx.random.pick(CATEGORIES) }
+      }
+    ]
+  },
+  {
+    name: 'interact',
+    weight: 8,
+    requests: (ctx) => [
+      {
+        endpoint: 'submitQuestion',
+        method: 'POST',
+        path: '/student/interact/questionSubmit',
+        body: { studentId: ctx.studentId, teacherId: 1, title: '压测问题', content: '压测问题内容', type: ctx.random.pick(CATEGORIES) }
+      },
+      { endpoint: 'getMyQuestions', method: 'GET', path: `/student/interact/questions/${ctx.studentId}` }
+    ]
+  }
+]
+
+// 按权重选择场景；spike为true时提高作业提交的权重
+export const chooseScenario = (random, spike) => {
+  const weights = scenarios.map(s => s.weight * (spike && s.spikeFactor ? s.spikeFactor : 1))
+  const total = weights.reduce((a, b) => a + b, 0)
+  let r = random.next() * total
+  for (let i = 0; i < scenarios.length; i++) {
+    r -= weights[i]
+    if (r < 0) return scenarios[i]
+  }
+  return scenarios[scenarios.length - 1]
+}
@@ -10,6 +10,9 @@ export const getStudentHomeStatsApi = (studentId) => request.get(`/student/inter
 // 获取学生最近活动
 export const getStudentRecentActivitiesApi = (studentId) => request.get(`/student/interact/recentActivities/${studentId}`);
 
+// 一次请求获取首页多个数据板块，sections如 ['homeStats', 'courseware']
+export const getStudentHomeBundleApi = (studentId, sections = []) => request.get(`/student/home/${studentId}`, { params: { sections: sections.join(',') } });
+
 // ==================== 学习模块相关接口 ====================
 
 // 获取学生的课件列表（基于student_teacher关系）
@@ -42,6 +45,12 @@ export const submitHomeworkApi = (data) => request.post("/student/homework/submi
 
 export const getHomeworkStatsApi = (studentId) => request.get(`/student/homework/stats/${studentId}`);
 
+// 获取学生在某次作业中的成绩排名（超过了多少同学）
+export const getHomeworkRankApi = (homeworkId, studentId) => request.get(`/student/homeworkRank/${homeworkId}/${studentId}`);
+
+// 获取学生掌握最薄弱的知识点
+export const getWeakKnowledgeApi = (studentId) => request.get(`/student/weakKnowledge/${studentId}`);
+
 export const getAnalysisApi = (data) => request.post("/student/homework/analysis", data);
 // ==================== 互动问答相关接口 ====================
 
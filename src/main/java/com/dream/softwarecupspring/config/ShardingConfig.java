@@ -0,0 +1,73 @@
+package com.dream.softwarecupspring.config;
+
+import com.dream.softwarecupspring.sharding.ShardRouter;
+import com.dream.softwarecupspring.sharding.ShardRoutingDataSource;
+import com.dream.softwarecupspring.sharding.ShardRoutingInterceptor;
+import com.dream.softwarecupspring.sharding.ShardingProperties;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按学生ID分库（sharding.enabled=true 时启用）
+ * 配置示例：
+ *   sharding.shards[0].url=jdbc:mysql://db0/softwarecup
+ *   sharding.shards[1].url=jdbc:mysql://db1/softwarecup
+ * 分片0同时存放教师、资源、作业等全局表；学生相关查询中 JOIN 到的全局表需要同步到每个分片。
+ * 每个分片的连接设置不同的 auto_increment_offset，使自增ID在所有分片间唯一（只有ID的查询和重分片都依赖这一点）；
+ * 从单库切换到分库时，需先把各分片上学生表的 AUTO_INCREMENT 调到所有分片现有最大ID之上
+ */
+@Configuration
+@EnableConfigurationProperties(ShardingProperties.class)
+@ConditionalOnProperty(name = "sharding.enabled", havingValue = "true")
+public class ShardingConfig {
+
+    @Bean
+    public ShardRouter shardRouter(ShardingProperties properties) {
+        int count = properties.getShardCount() != null ? properties.getShardCount() : properties.getShards().size();
+        if (count < 1 || count > properties.getShards().size()) {
+            throw new IllegalStateException("分片数配置不正确：" + count);
+        }
+        return new ShardRouter(count);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(ShardingProperties properties) {
+        if (properties.getShards().size() > properties.getIdStride()) {
+            throw new IllegalStateException("分片个数不能超过自增ID步长：" + properties.getIdStride());
+        }
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < properties.getShards().size(); i++) {
+            ShardingProperties.Shard shard = properties.getShards().get(i);
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("shard-" + i);
+            dataSource.setJdbcUrl(shard.getUrl());
+            dataSource.setUsername(shard.getUsername());
+            dataSource.setPassword(shard.getPassword());
+            dataSource.setMaximumPoolSize(shard.getMaximumPoolSize());
+            dataSource.setConnectionInitSql("SET SESSION auto_increment_increment = " + properties.getIdStride()
+                + ", auto_increment_offset = " + (i + 1));
+            targets.put(i, dataSource);
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(targets.get(0));
+        routing.afterPropertiesSet();
+        // 事务开始时不立即取连接，等第一条语句根据studentId确定分片后再取
+        return new LazyConnectionDataSourceProxy(routing);
+    }
+
+    @Bean
+    public ShardRoutingInterceptor shardRoutingInterceptor(ShardRouter shardRouter) {
+        return new ShardRoutingInterceptor(shardRouter);
+    }
+}
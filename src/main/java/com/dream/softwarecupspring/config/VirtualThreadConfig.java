@@ -0,0 +1,128 @@
+package com.dream.softwarecupspring.config;
+
+import com.dream.softwarecupspring.interceptor.ConnectionGateInterceptor;
+import com.dream.softwarecupspring.sharding.ShardRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.annotation.PreDestroy;
+import jdk.jfr.consumer.RecordingStream;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 虚拟线程执行模式（execution.virtual-threads.enabled=true 时启用，需要JDK 21+）
+ * Tomcat 每个请求一个虚拟线程；同时用信号量把进入 /student/** 的并发数限制在连接池大小附近，
+ * 避免大量虚拟线程在Hikari上无界排队（分片时每个分片按自己的连接池大小单独限流）；并通过JFR报告钉住载体线程的同步块
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(name = "execution.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    private final ConnectionGateInterceptor connectionGateInterceptor;
+
+    private RecordingStream pinnedEvents;
+
+    public VirtualThreadConfig(DataSource dataSource,
+                               @Value("${execution.virtual-threads.gate-size:0}") int gateSize,
+                               @Value("${execution.virtual-threads.gate-timeout:5000}") long gateTimeoutMillis) {
+        ShardRoutingDataSource routing = findRouting(dataSource);
+        int[] permits = routing == null ? new int[]{poolSize(dataSource)} : shardPoolSizes(routing);
+        if (gateSize > 0) {
+            Arrays.fill(permits, gateSize);
+        }
+        this.connectionGateInterceptor = new ConnectionGateInterceptor(permits, gateTimeoutMillis);
+        if (routing != null) {
+            routing.setConnectionListener(connectionGateInterceptor::enter);
+        }
+        log.info("虚拟线程模式：/student/** 各连接池的并发上限 {}", Arrays.toString(permits));
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadExecutorCustomizer() {
+        ExecutorService executor = newVirtualThreadExecutor();
+        return protocolHandler -> {
+            if (executor != null) {
+                protocolHandler.setExecutor(executor);
+            }
+        };
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(connectionGateInterceptor).addPathPatterns("/student/**");
+    }
+
+    /**
+     * 订阅JFR的 jdk.VirtualThreadPinned 事件，记录钉住载体线程超过阈值的调用栈
+     */
+    @Bean
+    public RecordingStream pinnedThreadMonitor(@Value("${execution.virtual-threads.pinned-threshold:20}") long thresholdMillis) {
+        pinnedEvents = new RecordingStream();
+        pinnedEvents.enable("jdk.VirtualThreadPinned").withThreshold(Duration.ofMillis(thresholdMillis)).withStackTrace();
+        pinnedEvents.onEvent("jdk.VirtualThreadPinned", event ->
+            log.warn("虚拟线程被钉住 {} ms，调用栈：{}", event.getDuration().toMillis(), event.getStackTrace()));
+        pinnedEvents.startAsync();
+        return pinnedEvents;
+    }
+
+    @PreDestroy
+    public void stopMonitor() {
+        if (pinnedEvents != null) {
+            pinnedEvents.close();
+        }
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    // 分片时数据源是 LazyConnectionDataSourceProxy -> 路由数据源 -> 各分片的Hikari
+    private static ShardRoutingDataSource findRouting(DataSource dataSource) {
+        if (dataSource instanceof ShardRoutingDataSource routing) {
+            return routing;
+        }
+        if (dataSource instanceof DelegatingDataSource delegating) {
+            return findRouting(delegating.getTargetDataSource());
+        }
+        return null;
+    }
+
+    private static int[] shardPoolSizes(ShardRoutingDataSource routing) {
+        Map<Object, DataSource> shards = routing.getResolvedDataSources();
+        int[] sizes = new int[shards.size()];
+        shards.forEach((shard, target) -> sizes[(Integer) shard] = poolSize(target));
+        return sizes;
+    }
+
+    private static int poolSize(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource hikari) {
+            return hikari.getMaximumPoolSize();
+        }
+        if (dataSource instanceof DelegatingDataSource delegating) {
+            return poolSize(delegating.getTargetDataSource());
+        }
+        return 10;
+    }
+
+    // 通过反射调用，项目仍可在JDK 17上编译；运行在17上时保持平台线程
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("当前JDK不支持虚拟线程，继续使用平台线程池");
+            return null;
+        }
+    }
+}
@@ -186,6 +186,32 @@ public class StudentController {
         }
     }
 
+    /**
+     * 获取学生在某次作业中的成绩排名
+     */
+    @GetMapping("/homeworkRank/{homeworkId}/{studentId}")
+    public Result getHomeworkRank(@PathVariable Integer homeworkId, @PathVariable Integer studentId) {
+        try {
+            Map<String, Object> rank = studentService.getHomeworkRank(homeworkId, studentId);
+            return Result.success(rank);
+        } catch (Exception e) {
+            return Result.error("获取成绩排名失败：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取学生掌握最薄弱的知识点
+     */
+    @GetMapping("/weakKnowledge/{studentId}")
+    public Result getWeakKnowledge(@PathVariable Integer studentId) {
+        try {
+            List<Map<String, Object>> weakKnowledge = studentService.getWeakKnowledge(studentId);
+            return Result.success(weakKnowledge);
+        } catch (Exception e) {
+            return Result.error("获取薄弱知识点失败：" + e.getMessage());
+        }
+    }
+
     // ==================== 互动问答相关接口 ====================
 
     /**
@@ -255,6 +281,19 @@ public class StudentController {
         }
     }
 
+    /**
+     * 获取学生最近活动
+     */
+    @GetMapping("/recentActivities/{studentId}")
+    public Result getRecentActivities(@PathVariable Integer studentId) {
+        try {
+            List<ActivityEvent> activities = studentService.getRecentActivities(studentId);
+            return Result.success(activities);
+        } catch (Exception e) {
+            return Result.error("获取最近活动失败：" + e.getMessage());
+        }
+    }
+
     // ==================== 评分系统相关接口 ====================
 
     /**
@@ -310,4 +349,21 @@ public class StudentController {
             return Result.error("获取评分统计失败：" + e.getMessage());
         }
     }
-} 
\ No newline at end of file
+
+    // ==================== 首页聚合接口 ====================
+
+    /**
+     * 一次请求获取首页所需的多个数据板块
+     * sections可选：homeStats, courseware, studyStats, homeworkStats, interactStats, ratingStats, recentActivities
+     */
+    @GetMapping("/home/{studentId}")
+    public Result getHomeBundle(@PathVariable Integer studentId,
+                                @RequestParam(required = false) List<String> sections) {
+        try {
+            Map<String, Object> bundle = studentService.getHomeBundle(studentId, sections);
+            return Result.success(bundle);
+        } catch (Exception e) {
+            return Result.error("获取首页数据失败：" + e.getMessage());
+        }
+    }
+}
\ No newline at end of file
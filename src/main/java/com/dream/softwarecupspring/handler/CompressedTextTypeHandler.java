@@ -0,0 +1,37 @@
+package com.dream.softwarecupspring.handler;
+
+import com.dream.softwarecupspring.utils.TextCompressor;
+import org.apache.ibatis.type.BaseTypeHandler;
+import org.apache.ibatis.type.JdbcType;
+
+import java.sql.CallableStatement;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 长文本列（BLOB）的压缩存取，用法：#{answer,typeHandler=com.dream.softwarecupspring.handler.CompressedTextTypeHandler}
+ * 写入时是否压缩由 text-compression.enabled 决定，读取时总能识别压缩和原始两种格式
+ */
+public class CompressedTextTypeHandler extends BaseTypeHandler<String> {
+
+    @Override
+    public void setNonNullParameter(PreparedStatement ps, int i, String parameter, JdbcType jdbcType) throws SQLException {
+        ps.setBytes(i, TextCompressor.compress(parameter));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, String columnName) throws SQLException {
+        return TextCompressor.decompress(rs.getBytes(columnName));
+    }
+
+    @Override
+    public String getNullableResult(ResultSet rs, int columnIndex) throws SQLException {
+        return TextCompressor.decompress(rs.getBytes(columnIndex));
+    }
+
+    @Override
+    public String getNullableResult(CallableStatement cs, int columnIndex) throws SQLException {
+        return TextCompressor.decompress(cs.getBytes(columnIndex));
+    }
+}
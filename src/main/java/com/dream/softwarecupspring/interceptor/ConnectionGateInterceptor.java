@@ -0,0 +1,110 @@
+package com.dream.softwarecupspring.interceptor;
+
+import com.dream.softwarecupspring.common.Result;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按数据库连接池大小限制同时执行的请求数
+ * 每个连接池一个信号量，许可数为该池的最大连接数。只有一个连接池时请求进入就取得许可；
+ * 分片时请求要到第一次从某个分片取连接时才知道学生所在的分片，由路由数据源回调 enter 取得该分片的许可，
+ * 请求结束时一并释放。超时拿不到许可时返回“服务繁忙”，而不是让请求在连接池上无限等待
+ */
+public class ConnectionGateInterceptor implements HandlerInterceptor {
+
+    private static final String PERMIT_ATTRIBUTE = ConnectionGateInterceptor.class.getName() + ".permits";
+    private static final String BUSY_MESSAGE = "服务繁忙，请稍后重试";
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Semaphore[] permits;
+    private final long timeoutMillis;
+
+    /**
+     * @param permitsPerPool 每个连接池（分片）的许可数，按分片序号排列
+     */
+    public ConnectionGateInterceptor(int[] permitsPerPool, long timeoutMillis) {
+        this.permits = new Semaphore[permitsPerPool.length];
+        for (int i = 0; i < permitsPerPool.length; i++) {
+            this.permits[i] = new Semaphore(permitsPerPool[i], true);
+        }
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        Set<Integer> held = new HashSet<>();
+        request.setAttribute(PERMIT_ATTRIBUTE, held);
+        if (permits.length > 1 || acquire(held, 0)) {
+            return true;
+        }
+        request.removeAttribute(PERMIT_ATTRIBUTE);
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(objectMapper.writeValueAsString(Result.error(BUSY_MESSAGE)));
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        @SuppressWarnings("unchecked")
+        Set<Integer> held = (Set<Integer>) request.getAttribute(PERMIT_ATTRIBUTE);
+        if (held != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            held.forEach(shard -> permits[shard].release());
+        }
+    }
+
+    /**
+     * 当前请求要从某个分片取连接时调用：第一次访问该分片时取得它的许可，超时抛出异常。
+     * 不在受限请求中（如后台任务、跨分片查询的工作线程）时直接返回
+     */
+    public void enter(int shard) {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Set<Integer> held = (Set<Integer>) attributes.getAttribute(PERMIT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (held == null || held.contains(shard)) {
+            return;
+        }
+        try {
+            if (!acquire(held, shard)) {
+                throw new IllegalStateException(BUSY_MESSAGE);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(BUSY_MESSAGE, e);
+        }
+    }
+
+    public int availablePermits(int shard) {
+        return permits[shard].availablePermits();
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    // 重分片期间新加入、启动时还没有的分片不限流
+    private boolean acquire(Set<Integer> held, int shard) throws InterruptedException {
+        if (shard >= permits.length) {
+            return true;
+        }
+        if (!permits[shard].tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+            return false;
+        }
+        held.add(shard);
+        return true;
+    }
+}
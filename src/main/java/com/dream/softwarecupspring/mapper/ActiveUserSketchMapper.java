@@ -0,0 +1,31 @@
+package com.dream.softwarecupspring.mapper;
+
+import com.dream.softwarecupspring.sharding.GlobalTable;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import java.time.LocalDate;
+
+@Mapper
+@GlobalTable
+public interface ActiveUserSketchMapper {
+
+    /**
+     * 获取某天活跃学生的HyperLogLog摘要
+     */
+    byte[] getSketchByDay(LocalDate day);
+
+    /**
+     * 在事务中锁定并读取某天的摘要，用于合并写回
+     */
+    byte[] getSketchForUpdate(LocalDate day);
+
+    /**
+     * 某天的摘要不存在时插入一个空摘要，保证随后可以加锁读取
+     */
+    void insertIfAbsent(@Param("day") LocalDate day, @Param("data") byte[] data);
+
+    /**
+     * 保存某天活跃学生的HyperLogLog摘要
+     */
+    void saveOrUpdate(@Param("day") LocalDate day, @Param("data") byte[] data);
+}
@@ -0,0 +1,15 @@
+package com.dream.softwarecupspring.mapper;
+
+import com.dream.softwarecupspring.pojo.ActivityEvent;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import java.util.List;
+
+@Mapper
+public interface ActivityMapper {
+
+    /**
+     * 获取某个学生最近的活动（学习、AI提问、提问、评分、作业提交）
+     */
+    List<ActivityEvent> getRecentActivitiesByStudentId(@Param("studentId") Integer studentId, @Param("limit") Integer limit);
+}
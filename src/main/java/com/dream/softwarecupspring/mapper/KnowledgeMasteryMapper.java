@@ -0,0 +1,19 @@
+package com.dream.softwarecupspring.mapper;
+
+import com.dream.softwarecupspring.pojo.KnowledgeScore;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.session.ResultHandler;
+
+@Mapper
+public interface KnowledgeMasteryMapper {
+
+    /**
+     * 按 学生 × 知识点 汇总已批改题目的得分，逐行回调，避免一次性加载到内存
+     */
+    void streamKnowledgeScores(ResultHandler<KnowledgeScore> handler);
+
+    /**
+     * 在当前事务中执行一次一致性读，使可重复读事务立即建立读快照
+     */
+    Integer openSnapshot();
+}
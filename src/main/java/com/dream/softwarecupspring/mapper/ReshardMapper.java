@@ -0,0 +1,40 @@
+package com.dream.softwarecupspring.mapper;
+
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 重分片时按学生搬迁数据，表名只来自 ReshardServiceImpl 中的常量
+ */
+@Mapper
+public interface ReshardMapper {
+
+    /**
+     * 表中出现过的学生ID
+     */
+    List<Integer> getStudentIds(@Param("table") String table);
+
+    /**
+     * 读取某个学生在表中的全部行（列名 -> 原始值）
+     */
+    List<Map<String, Object>> getRowsByStudent(@Param("table") String table, @Param("studentId") Integer studentId);
+
+    /**
+     * 写入一行，主键/唯一键冲突时覆盖目标库已有的行
+     */
+    void copyRow(@Param("table") String table, @Param("row") Map<String, Object> row);
+
+    /**
+     * ids 中已被其他学生占用的ID，搬迁前检查，避免覆盖别人的数据
+     */
+    List<Integer> getConflictingIds(@Param("table") String table, @Param("studentId") Integer studentId,
+                                    @Param("ids") List<Object> ids);
+
+    /**
+     * 删除某个学生在表中的全部行
+     */
+    int deleteByStudent(@Param("table") String table, @Param("studentId") Integer studentId);
+}
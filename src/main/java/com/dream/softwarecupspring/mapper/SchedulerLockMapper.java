@@ -0,0 +1,29 @@
+package com.dream.softwarecupspring.mapper;
+
+import com.dream.softwarecupspring.sharding.GlobalTable;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+/**
+ * 定时任务的集群租约（scheduler_lock 是分片0上的全局表）
+ * 每条语句单独提交，不依赖连接，锁的持有者宕机后租约到期即可由其他节点取得
+ */
+@Mapper
+@GlobalTable
+public interface SchedulerLockMapper {
+
+    /**
+     * 锁记录不存在时插入一条已过期的记录，已存在时忽略
+     */
+    void insertIfAbsent(@Param("name") String name);
+
+    /**
+     * 租约已过期或本来就由owner持有时取得（续期）租约，返回1表示成功
+     */
+    int tryAcquire(@Param("name") String name, @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * 释放owner持有的租约
+     */
+    void release(@Param("name") String name, @Param("owner") String owner);
+}
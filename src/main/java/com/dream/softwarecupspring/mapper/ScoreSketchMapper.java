@@ -0,0 +1,53 @@
+package com.dream.softwarecupspring.mapper;
+
+import com.dream.softwarecupspring.sharding.GlobalTable;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import java.util.List;
+
+/**
+ * score_sketch 和 homework 是分片0上的全局表；student_homework 按学生分片，跨学生的统计需要在每个分片上执行
+ */
+@Mapper
+public interface ScoreSketchMapper {
+
+    /**
+     * 获取作业成绩分布摘要的序列化数据
+     */
+    @GlobalTable
+    byte[] getSketchByHomeworkId(Integer homeworkId);
+
+    /**
+     * 在事务中锁定并读取作业成绩分布摘要，用于合并写回
+     */
+    @GlobalTable
+    byte[] getSketchForUpdate(Integer homeworkId);
+
+    /**
+     * 摘要不存在时插入（本节点新建的摘要或空摘要），已存在时不做任何修改，保证随后可以加锁读取
+     */
+    @GlobalTable
+    void insertIfAbsent(@Param("homeworkId") Integer homeworkId, @Param("data") byte[] data);
+
+    /**
+     * 保存作业成绩分布摘要
+     */
+    @GlobalTable
+    void saveOrUpdate(@Param("homeworkId") Integer homeworkId, @Param("data") byte[] data);
+
+    /**
+     * 获取作业所有已批改的成绩（新建摘要或修正摘要时使用）
+     */
+    List<Integer> getGradedScoresByHomeworkId(Integer homeworkId);
+
+    /**
+     * 获取学生某次作业的成绩
+     */
+    Integer getStudentScore(@Param("homeworkId") Integer homeworkId, @Param("studentId") Integer studentId);
+
+    /**
+     * 获取教师发布的作业ID列表
+     */
+    @GlobalTable
+    List<Integer> getHomeworkIdsByTeacherId(Integer teacherId);
+}
@@ -0,0 +1,76 @@
+package com.dream.softwarecupspring.mapper;
+
+import com.dream.softwarecupspring.pojo.ShardState;
+import com.dream.softwarecupspring.sharding.GlobalTable;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 全局分片状态（都在分片0上）：分片数、进行中的重分片、已搬迁和冻结的学生，以及各节点已确认的状态版本
+ */
+@Mapper
+@GlobalTable
+public interface ShardStateMapper {
+
+    // ==================== 分片状态 ====================
+
+    /**
+     * 状态不存在时用配置的分片数初始化，已存在时忽略
+     */
+    void initState(@Param("shardCount") Integer shardCount);
+
+    ShardState getState();
+
+    /**
+     * 没有进行中的重分片时开始向 targetCount 迁移，返回0表示已有未完成的重分片
+     */
+    int beginMigration(@Param("targetCount") Integer targetCount);
+
+    /**
+     * 切换到目标分片数并结束迁移
+     */
+    void finishMigration();
+
+    void setFreezeUnmoved(@Param("freezeUnmoved") Boolean freezeUnmoved);
+
+    /**
+     * 状态版本加1，与修改在同一事务中执行
+     */
+    void bumpVersion();
+
+    // ==================== 学生 ====================
+
+    List<Integer> getMovedStudents();
+
+    void addMovedStudent(@Param("studentId") Integer studentId);
+
+    void clearMovedStudents();
+
+    List<Integer> getFrozenStudents();
+
+    void addFrozenStudent(@Param("studentId") Integer studentId);
+
+    void removeFrozenStudent(@Param("studentId") Integer studentId);
+
+    void clearFrozenStudents();
+
+    // ==================== 节点 ====================
+
+    /**
+     * 记录节点已确认的状态版本，同时作为心跳
+     */
+    void saveNodeVersion(@Param("nodeId") String nodeId, @Param("version") Long version);
+
+    /**
+     * aliveAfter 之后仍有心跳、但尚未确认 version 的节点
+     */
+    List<String> getLaggingNodes(@Param("version") Long version, @Param("aliveAfter") LocalDateTime aliveAfter);
+
+    /**
+     * 数据库的当前时间，心跳都按数据库时间记录，不受各节点时钟偏差影响
+     */
+    LocalDateTime now();
+}
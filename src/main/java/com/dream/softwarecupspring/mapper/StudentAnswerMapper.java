@@ -0,0 +1,56 @@
+package com.dream.softwarecupspring.mapper;
+
+import com.dream.softwarecupspring.pojo.AnswerKey;
+import com.dream.softwarecupspring.pojo.StudentAnswer;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import java.util.List;
+
+@Mapper
+public interface StudentAnswerMapper {
+
+    /**
+     * 批量保存或更新学生答案
+     */
+    void saveOrUpdateBatch(@Param("answers") List<StudentAnswer> answers);
+
+    /**
+     * 获取作业的标准答案和分值
+     */
+    List<AnswerKey> getAnswerKeysByHomeworkId(Integer homeworkId);
+
+    /**
+     * 获取某次作业所有已提交学生的答案
+     */
+    List<StudentAnswer> getSubmittedAnswersByHomeworkId(Integer homeworkId);
+
+    /**
+     * 获取学生某次作业的全部答案和已有得分
+     */
+    List<StudentAnswer> getStudentAnswers(@Param("homeworkId") Integer homeworkId,
+                                          @Param("studentId") Integer studentId);
+
+    /**
+     * 锁定学生的提交记录（SELECT ... FOR UPDATE）并返回当前状态，没有记录时返回null
+     */
+    Integer lockHomeworkStatus(@Param("homeworkId") Integer homeworkId, @Param("studentId") Integer studentId);
+
+    /**
+     * 获取学生某次作业已批改的总分，未批改时返回null
+     */
+    Integer getGradedTotal(@Param("homeworkId") Integer homeworkId, @Param("studentId") Integer studentId);
+
+    /**
+     * 批量更新单题得分；answers 必须都属于 studentId，studentId 用于分片路由
+     */
+    void updateScoreBatch(@Param("studentId") Integer studentId, @Param("answers") List<StudentAnswer> answers);
+
+    /**
+     * 更新学生作业总分和状态，只在当前状态属于 expectedStatuses 时更新，返回更新的行数
+     */
+    int updateHomeworkScore(@Param("homeworkId") Integer homeworkId,
+                            @Param("studentId") Integer studentId,
+                            @Param("score") Integer score,
+                            @Param("status") Integer status,
+                            @Param("expectedStatuses") List<Integer> expectedStatuses);
+}
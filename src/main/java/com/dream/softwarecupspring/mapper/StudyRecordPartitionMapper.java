@@ -0,0 +1,94 @@
+package com.dream.softwarecupspring.mapper;
+
+import com.dream.softwarecupspring.pojo.StudyRecord;
+import com.dream.softwarecupspring.pojo.StudyRecordSummary;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.session.ResultHandler;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface StudyRecordPartitionMapper {
+
+    // ==================== 分区维护 ====================
+
+    /**
+     * 获取表的分区名列表（按分区顺序）
+     */
+    List<String> getPartitionNames(@Param("table") String table);
+
+    /**
+     * 表中最早的创建时间，空表返回null
+     */
+    LocalDateTime getMinCreatedTime(@Param("table") String table);
+
+    /**
+     * 把兜底分区 pmax 拆分出若干个月分区，partitions 为 分区名 -> 上界日期，按月份升序
+     */
+    void addMonthPartitions(@Param("table") String table,
+                            @Param("partitions") Map<String, String> partitions);
+
+    /**
+     * 删除分区
+     */
+    void dropPartition(@Param("table") String table, @Param("partition") String partition);
+
+    /**
+     * 逐行读取某个学习记录分区，用于归档
+     */
+    void streamStudyRecordPartition(@Param("partition") String partition, ResultHandler<StudyRecord> handler);
+
+    // ==================== 归档汇总 ====================
+
+    /**
+     * 保存归档月份的学生学习汇总，重复归档同一月份时覆盖
+     */
+    void saveSummaries(@Param("summaries") List<StudyRecordSummary> summaries);
+
+    /**
+     * 保存归档月份中已完成（进度达到100）的资源，只用到 studentId 和 resourceId
+     */
+    void saveCompletedResources(@Param("records") List<StudyRecord> records);
+
+    /**
+     * 某个学生所有归档月份的汇总合计；hotFrom 不为null时只统计该日期之前（分区已删除）的月份
+     */
+    StudyRecordSummary getArchivedSummary(@Param("studentId") Integer studentId, @Param("hotFrom") LocalDate hotFrom);
+
+    /**
+     * 某个学生在归档月份中完成的资源ID
+     */
+    List<Integer> getArchivedCompletedResourceIds(@Param("studentId") Integer studentId);
+
+    // ==================== 热数据查询 ====================
+
+    /**
+     * 某个学生热数据中的进度合计和有进度的记录数
+     */
+    StudyRecordSummary getProgressSummary(@Param("studentId") Integer studentId);
+
+    /**
+     * 某个学生热数据中进度达到100的资源ID
+     */
+    List<Integer> getCompletedResourceIds(@Param("studentId") Integer studentId);
+
+    /**
+     * 按学生、类型和时间段查询学习记录（带时间条件以便分区裁剪）
+     */
+    List<StudyRecord> getStudyRecords(@Param("studentId") Integer studentId,
+                                      @Param("resourceType") String resourceType,
+                                      @Param("from") LocalDateTime from,
+                                      @Param("to") LocalDateTime to,
+                                      @Param("limit") Integer limit);
+
+    /**
+     * 按学生、类型和时间段统计学习记录数
+     */
+    Integer countStudyRecords(@Param("studentId") Integer studentId,
+                              @Param("resourceType") String resourceType,
+                              @Param("from") LocalDateTime from,
+                              @Param("to") LocalDateTime to);
+}
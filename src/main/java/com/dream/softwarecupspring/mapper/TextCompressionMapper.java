@@ -0,0 +1,51 @@
+package com.dream.softwarecupspring.mapper;
+
+import com.dream.softwarecupspring.pojo.TextDictionary;
+import com.dream.softwarecupspring.sharding.GlobalTable;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import java.util.List;
+import java.util.Map;
+
+@Mapper
+public interface TextCompressionMapper {
+
+    // ==================== 字典 ====================
+
+    /**
+     * 获取全部压缩字典（按ID升序，最后一个为当前字典）
+     */
+    @GlobalTable
+    List<TextDictionary> getDictionaries();
+
+    /**
+     * 按ID获取字典，不存在时返回null
+     */
+    @GlobalTable
+    TextDictionary getDictionary(@Param("id") Integer id);
+
+    /**
+     * 保存新训练的字典，ID已存在时抛出主键冲突
+     */
+    @GlobalTable
+    void insertDictionary(TextDictionary dictionary);
+
+    /**
+     * 取最近的文本样本用于训练字典（可能已是压缩格式，由调用方解压）
+     */
+    List<byte[]> getSamples(@Param("table") String table, @Param("column") String column, @Param("limit") Integer limit);
+
+    // ==================== 迁移 ====================
+
+    /**
+     * 按ID分批读取原始列数据（返回 id 和 data）
+     */
+    List<Map<String, Object>> getRawBatch(@Param("table") String table, @Param("column") String column,
+                                          @Param("afterId") Integer afterId, @Param("limit") Integer limit);
+
+    /**
+     * 列仍是读出时的原始数据时写回压缩后的数据，返回0表示期间已被应用改写，不覆盖
+     */
+    int updateRaw(@Param("table") String table, @Param("column") String column,
+                  @Param("id") Integer id, @Param("original") byte[] original, @Param("data") byte[] data);
+}
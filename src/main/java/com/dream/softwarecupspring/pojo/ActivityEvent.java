@@ -0,0 +1,23 @@
+package com.dream.softwarecupspring.pojo;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ActivityEvent {
+    private Integer studentId;      // 学生ID
+    private String type;            // 活动类型：study, ai, discussion, rating, homework
+    private String title;           // 活动描述
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime createdTime;  // 发生时间
+    @JsonIgnore
+    private String mergeKey;        // 合并键：同一键的活动在合并窗口内只保留最新一条，null表示不合并
+    @JsonIgnore
+    private String sourceKey;       // 来源键：活动类型+数据库行ID，同一行只保留一条（预热结果和提交回调可能重复）
+}
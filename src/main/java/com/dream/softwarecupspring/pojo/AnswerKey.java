@@ -0,0 +1,16 @@
+package com.dream.softwarecupspring.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AnswerKey {
+    private Integer questionId;     // 题目ID
+    private String type;            // 题型：choice, multiple, judge, fill, short, code
+    private String answer;          // 标准答案
+    private Integer score;          // 分值
+    private String knowledge;       // 考查的知识点
+}
@@ -0,0 +1,15 @@
+package com.dream.softwarecupspring.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class KnowledgeScore {
+    private Integer studentId;      // 学生ID
+    private String knowledge;       // 知识点
+    private Integer score;          // 得分合计
+    private Integer fullScore;      // 满分合计
+}
@@ -0,0 +1,15 @@
+package com.dream.softwarecupspring.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ShardState {
+    private Integer shardCount;     // 当前生效的分片数
+    private Integer targetCount;    // 进行中的重分片的目标分片数，没有时为null
+    private Boolean freezeUnmoved;  // 是否冻结全部尚未搬迁的学生
+    private Long version;           // 每次修改加1，各节点据此判断是否需要重新加载
+}
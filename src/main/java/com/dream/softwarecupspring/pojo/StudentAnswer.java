@@ -0,0 +1,16 @@
+package com.dream.softwarecupspring.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StudentAnswer {
+    private Integer homeworkId;     // 作业ID
+    private Integer studentId;      // 学生ID
+    private Integer questionId;     // 题目ID
+    private String answer;          // 学生答案
+    private Integer score;          // 得分，主观题未批改时为null
+}
@@ -0,0 +1,19 @@
+package com.dream.softwarecupspring.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDate;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class StudyRecordSummary {
+    private Integer studentId;      // 学生ID
+    private LocalDate month;        // 归档月份（当月1日），多个月合计时为null
+    private Long studyTime;         // 学习时长合计（秒）
+    private Integer recordCount;    // 学习记录数
+    private Long progressSum;       // 进度合计（只计有进度的记录）
+    private Integer progressCount;  // 有进度的记录数
+    private Integer studyDays;      // 学习天数
+}
@@ -0,0 +1,13 @@
+package com.dream.softwarecupspring.pojo;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TextDictionary {
+    private Integer id;             // 字典ID，写入压缩数据头部
+    private byte[] data;            // 字典内容
+}
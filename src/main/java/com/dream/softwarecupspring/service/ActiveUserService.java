@@ -0,0 +1,28 @@
+package com.dream.softwarecupspring.service;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+public interface ActiveUserService {
+
+    /**
+     * 记录学生今天活跃
+     */
+    void recordActive(Integer studentId);
+
+    /**
+     * 估算 [from, to] 期间（含两端）的活跃学生数
+     */
+    long countActive(LocalDate from, LocalDate to);
+
+    /**
+     * 日活、周活、月活
+     */
+    Map<String, Object> getActiveOverview();
+
+    /**
+     * 最近days天每天的活跃学生数
+     */
+    List<Map<String, Object>> getActiveTrend(int days);
+}
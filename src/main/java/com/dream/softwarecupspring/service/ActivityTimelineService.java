@@ -0,0 +1,22 @@
+package com.dream.softwarecupspring.service;
+
+import com.dream.softwarecupspring.pojo.ActivityEvent;
+import java.util.List;
+
+public interface ActivityTimelineService {
+
+    /**
+     * 记录一条学生活动（在当前事务提交后写入内存时间线），sourceId 为活动对应的数据库行ID
+     */
+    void record(Integer studentId, String type, String title, Integer sourceId);
+
+    /**
+     * 记录一条可合并的活动：合并窗口内同一mergeKey的旧活动会被这条替换（如同一课件的多次学习心跳）
+     */
+    void record(Integer studentId, String type, String title, String mergeKey);
+
+    /**
+     * 获取某个学生最近的活动，按时间倒序
+     */
+    List<ActivityEvent> getRecentActivities(Integer studentId, int limit);
+}
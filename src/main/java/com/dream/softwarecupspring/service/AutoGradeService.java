@@ -0,0 +1,21 @@
+package com.dream.softwarecupspring.service;
+
+import java.util.Map;
+
+public interface AutoGradeService {
+
+    /**
+     * 异步批改一份提交的客观题（在当前事务提交后执行，批改时读取学生当前保存的答案）
+     */
+    void gradeAsync(Integer homeworkId, Integer studentId);
+
+    /**
+     * 标准答案变更后并行重新批改整次作业，返回批改的提交份数
+     */
+    int regradeHomework(Integer homeworkId);
+
+    /**
+     * 教师批改主观题后调用：保存各题得分（题目ID -> 得分），重新计算总分和批改状态，并同步成绩分布
+     */
+    void saveManualScores(Integer homeworkId, Integer studentId, Map<Integer, Integer> scores);
+}
@@ -0,0 +1,34 @@
+package com.dream.softwarecupspring.service;
+
+import java.util.List;
+import java.util.Map;
+
+public interface KnowledgeMasteryService {
+
+    /**
+     * 记录一道题目的得分变化：previousScore 为该题之前计入的得分（首次批改时为null），
+     * 重新提交或改分时先扣除旧得分再加入新得分；score 为null表示该题不再计入
+     * 应在写入得分的事务中调用，事务提交后才生效
+     */
+    void recordAnswer(Integer studentId, String knowledge, Integer previousScore, Integer score, Integer fullScore);
+
+    /**
+     * 从数据库重新加载整个掌握度矩阵
+     */
+    void reload();
+
+    /**
+     * 平均掌握度最高的知识点
+     */
+    List<Map<String, Object>> getTopKnowledgeScore(int limit);
+
+    /**
+     * 掌握度分布（每10分一段），knowledge为空时统计全部知识点
+     */
+    List<Map<String, Object>> getKnowledgeDistribution(String knowledge);
+
+    /**
+     * 学生掌握度最低的知识点
+     */
+    List<Map<String, Object>> getWeakestKnowledge(Integer studentId, int limit);
+}
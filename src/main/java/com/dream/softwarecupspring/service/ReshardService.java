@@ -0,0 +1,12 @@
+package com.dream.softwarecupspring.service;
+
+import java.util.Map;
+
+public interface ReshardService {
+
+    /**
+     * 在线把学生数据重新分布到 newShardCount 个分片上（新分片需已在 sharding.shards 中配置并建好表）
+     * 返回每个表搬迁的行数和搬迁的学生数
+     */
+    Map<String, Object> reshard(int newShardCount);
+}
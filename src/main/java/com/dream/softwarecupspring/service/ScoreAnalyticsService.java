@@ -0,0 +1,33 @@
+package com.dream.softwarecupspring.service;
+
+import java.util.List;
+import java.util.Map;
+
+public interface ScoreAnalyticsService {
+
+    /**
+     * 学生成绩变化：移除旧成绩并加入新成绩，null表示没有（未批改或重新提交后等待批改）
+     * 在当前事务提交后生效
+     */
+    void updateScore(Integer homeworkId, Integer previousScore, Integer newScore);
+
+    /**
+     * 从数据库重建某次作业的成绩分布（重新批改后调用）
+     */
+    void rebuild(Integer homeworkId);
+
+    /**
+     * 学生在某次作业中的排名：成绩、超过的同学百分比、中位数等
+     */
+    Map<String, Object> getStudentRank(Integer homeworkId, Integer studentId);
+
+    /**
+     * 多次作业合并后的成绩分布（人数、平均分、各分位数）
+     */
+    Map<String, Object> getScoreDistribution(List<Integer> homeworkIds);
+
+    /**
+     * 教师所有作业合并后的班级成绩分布
+     */
+    Map<String, Object> getClassScoreDistribution(Integer teacherId);
+}
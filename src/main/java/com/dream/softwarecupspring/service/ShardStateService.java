@@ -0,0 +1,46 @@
+package com.dream.softwarecupspring.service;
+
+public interface ShardStateService {
+
+    /**
+     * 从分片0读取全局分片状态并应用到本节点的路由，随后确认版本并续期写入资格
+     */
+    void refresh();
+
+    /**
+     * 开始向 newShardCount 个分片迁移，等待所有在线节点确认（此后各节点的写入都会登记）
+     */
+    void beginMigration(int newShardCount, long timeoutMillis) throws InterruptedException;
+
+    /**
+     * 等待所有在线节点确认当前的全局分片状态，用于继续未完成的重分片
+     */
+    void awaitCurrentState(long timeoutMillis) throws InterruptedException;
+
+    /**
+     * 冻结学生的写入，等待所有在线节点上该学生进行中的写事务结束；超时时解除冻结并抛出IllegalStateException
+     */
+    void freeze(Integer studentId, long timeoutMillis) throws InterruptedException;
+
+    void unfreeze(Integer studentId);
+
+    /**
+     * 学生数据已复制到新分片，之后所有节点按新分片数路由该学生
+     */
+    void markMoved(Integer studentId);
+
+    /**
+     * 冻结所有尚未搬迁、但在新分片数下会换分片的学生，并等待所有在线节点上他们的写入结束
+     */
+    void freezeUnmoved(long timeoutMillis) throws InterruptedException;
+
+    /**
+     * 解除所有冻结，保留已搬迁学生的路由
+     */
+    void releaseFreezes();
+
+    /**
+     * 全部学生搬迁完成，切换分片数并结束迁移
+     */
+    void finishMigration();
+}
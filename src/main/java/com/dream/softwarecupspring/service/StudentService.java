@@ -18,6 +18,11 @@ public interface StudentService {
      */
     Map<String, Object> getStudyStats(Integer studentId);
 
+    /**
+     * 分页获取学生学习详细记录（参数：type, period, page, size）
+     */
+    Map<String, Object> getStudyRecords(Integer studentId, Map<String, Object> params);
+
     /**
      * 记录学生查看课件行为
      */
@@ -55,6 +60,16 @@ public interface StudentService {
      */
     Map<String, Object> getHomeworkStats(Integer studentId);
 
+    /**
+     * 获取学生在某次作业中的成绩排名
+     */
+    Map<String, Object> getHomeworkRank(Integer homeworkId, Integer studentId);
+
+    /**
+     * 获取学生掌握最薄弱的知识点
+     */
+    List<Map<String, Object>> getWeakKnowledge(Integer studentId);
+
     // ==================== 互动问答相关方法 ====================
 
     /**
@@ -82,6 +97,11 @@ public interface StudentService {
      */
     Map<String, Object> getInteractStats(Integer studentId);
 
+    /**
+     * 获取学生最近活动
+     */
+    List<ActivityEvent> getRecentActivities(Integer studentId);
+
     // ==================== 评分系统相关方法 ====================
 
     /**
@@ -103,4 +123,12 @@ public interface StudentService {
      * 获取学生评分统计
      */
     Map<String, Object> getRatingStats(Integer studentId);
-} 
\ No newline at end of file
+
+    // ==================== 首页聚合相关方法 ====================
+
+    /**
+     * 按需聚合学生首页所需的多个数据板块，一次请求返回
+     * sections为空时返回全部板块
+     */
+    Map<String, Object> getHomeBundle(Integer studentId, List<String> sections);
+}
\ No newline at end of file
@@ -0,0 +1,43 @@
+package com.dream.softwarecupspring.service;
+
+import com.dream.softwarecupspring.pojo.StudyRecord;
+import com.dream.softwarecupspring.pojo.StudyRecordSummary;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+public interface StudyRecordPartitionService {
+
+    /**
+     * 创建后续月份的分区，并把超过保留期限的分区归档到归档目录后删除；多个节点同时触发时只有取得租约的节点执行
+     */
+    void maintainPartitions();
+
+    /**
+     * 分页查询学习记录，合并数据库中的热数据和归档文件中的冷数据
+     * from/to/resourceType 为null时不限制
+     */
+    Map<String, Object> getStudyRecords(Integer studentId, String resourceType,
+                                        LocalDateTime from, LocalDateTime to, int page, int size);
+
+    /**
+     * 归档文件中最近的学习记录（按时间倒序，最多limit条），studentId为null时不限学生
+     */
+    List<StudyRecord> getArchivedStudyRecords(Integer studentId, int limit);
+
+    /**
+     * 某个学生已归档月份的学习汇总，没有归档数据时返回null
+     */
+    StudyRecordSummary getArchivedStudySummary(Integer studentId);
+
+    /**
+     * 热数据与归档汇总合并后的平均进度
+     */
+    Double getAverageProgress(Integer studentId, StudyRecordSummary archived);
+
+    /**
+     * 热数据与归档月份合并后进度达到100的资源数，同一资源只算一次
+     */
+    int getCompletedResourceCount(Integer studentId);
+}
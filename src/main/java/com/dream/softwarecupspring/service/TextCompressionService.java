@@ -0,0 +1,17 @@
+package com.dream.softwarecupspring.service;
+
+import java.util.Map;
+
+public interface TextCompressionService {
+
+    /**
+     * 用现有的回答和问题文本训练新字典，并设为当前字典；样本太少或其他节点抢先创建了同ID字典时返回0
+     */
+    int trainDictionary();
+
+    /**
+     * 把尚未压缩的长文本列逐批压缩写回，返回各列的迁移行数、因期间被改写而跳过的行数、压缩前后字节数和解压吞吐；
+     * 未启用压缩时抛出IllegalStateException
+     */
+    Map<String, Object> migrate();
+}
@@ -0,0 +1,186 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.ActiveUserSketchMapper;
+import com.dream.softwarecupspring.service.ActiveUserService;
+import com.dream.softwarecupspring.utils.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 活跃学生数统计
+ * 每天一个HyperLogLog摘要，任意时间窗口的活跃人数由对应天的摘要合并得到，与历史数据量无关；
+ * 写回数据库时与已存的摘要按寄存器取最大值合并，多个节点各自统计的活跃学生都会保留
+ */
+@Slf4j
+@Service
+public class ActiveUserServiceImpl implements ActiveUserService {
+
+    // 内存中保留的天数，更早的摘要查询时从数据库读取
+    private static final int CACHED_DAYS = 35;
+
+    @Autowired
+    private ActiveUserSketchMapper activeUserSketchMapper;
+
+    private final Map<LocalDate, HyperLogLog> sketches = new ConcurrentHashMap<>();
+
+    // 已从数据库查过但不存在的日期，避免重复查询
+    private final Set<LocalDate> missing = ConcurrentHashMap.newKeySet();
+
+    private final Set<LocalDate> dirty = ConcurrentHashMap.newKeySet();
+
+    private final TransactionTemplate transactionTemplate;
+
+    // markActive 在请求事务的 afterCommit 中执行，连接仍属于学生所在的分片，读取全局表的摘要前先挂起事务
+    private final TransactionTemplate loadTemplate;
+
+    public ActiveUserServiceImpl(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loadTemplate = new TransactionTemplate(transactionManager);
+        this.loadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+    }
+
+    @Override
+    public void recordActive(Integer studentId) {
+        if (studentId == null) {
+            return;
+        }
+        // 请求的事务回滚时不算作活跃
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    markActive(studentId);
+                }
+            });
+        } else {
+            markActive(studentId);
+        }
+    }
+
+    private void markActive(Integer studentId) {
+        LocalDate today = LocalDate.now();
+        HyperLogLog sketch = sketches.get(today);
+        if (sketch == null) {
+            // 两个请求同时加载时只保留先放入的一个
+            HyperLogLog loaded = loadOrCreate(today);
+            sketch = sketches.putIfAbsent(today, loaded);
+            if (sketch == null) {
+                sketch = loaded;
+            }
+        }
+        sketch.add(studentId);
+        dirty.add(today);
+    }
+
+    @Override
+    public long countActive(LocalDate from, LocalDate to) {
+        HyperLogLog union = new HyperLogLog();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            HyperLogLog sketch = sketch(day);
+            if (sketch != null) {
+                union.merge(sketch);
+            }
+        }
+        return union.estimate();
+    }
+
+    @Override
+    public Map<String, Object> getActiveOverview() {
+        LocalDate today = LocalDate.now();
+        Map<String, Object> overview = new LinkedHashMap<>();
+
+        overview.put("dailyActive", countActive(today, today));                      // 日活
+        overview.put("weeklyActive", countActive(today.minusDays(6), today));         // 近7天活跃
+        overview.put("monthlyActive", countActive(today.minusDays(29), today));       // 近30天活跃
+
+        return overview;
+    }
+
+    @Override
+    public List<Map<String, Object>> getActiveTrend(int days) {
+        LocalDate today = LocalDate.now();
+        List<Map<String, Object>> trend = new ArrayList<>(days);
+        for (LocalDate day = today.minusDays(days - 1L); !day.isAfter(today); day = day.plusDays(1)) {
+            HyperLogLog sketch = sketch(day);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("date", day.toString());                               // 日期
+            row.put("activeCount", sketch == null ? 0 : sketch.estimate()); // 活跃人数
+            trend.add(row);
+        }
+        return trend;
+    }
+
+    /**
+     * 定时保存有变化的摘要，并清理内存中过旧的摘要
+     */
+    @Scheduled(fixedDelayString = "${active-user.flush-interval:300000}")
+    @PreDestroy
+    public void flush() {
+        for (LocalDate day : dirty) {
+            dirty.remove(day);
+            HyperLogLog sketch = sketches.get(day);
+            if (sketch == null) {
+                continue;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    activeUserSketchMapper.insertIfAbsent(day, new HyperLogLog().toBytes());
+                    // 合并是幂等的，内存中的摘要同时得到了其他节点的活跃学生
+                    sketch.merge(HyperLogLog.fromBytes(activeUserSketchMapper.getSketchForUpdate(day)));
+                    activeUserSketchMapper.saveOrUpdate(day, sketch.toBytes());
+                });
+            } catch (RuntimeException e) {
+                dirty.add(day);
+                log.error("保存 {} 的活跃学生摘要失败", day, e);
+            }
+        }
+        LocalDate oldest = LocalDate.now().minusDays(CACHED_DAYS);
+        sketches.keySet().removeIf(day -> day.isBefore(oldest) && !dirty.contains(day));
+        missing.removeIf(day -> day.isBefore(oldest));
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private HyperLogLog sketch(LocalDate day) {
+        HyperLogLog sketch = sketches.get(day);
+        if (sketch != null || missing.contains(day)) {
+            return sketch;
+        }
+        byte[] data = loadSketch(day);
+        if (data == null) {
+            // 今天的摘要随时可能出现，不记入missing
+            if (day.isBefore(LocalDate.now())) {
+                missing.add(day);
+            }
+            return null;
+        }
+        HyperLogLog loaded = HyperLogLog.fromBytes(data);
+        HyperLogLog existing = sketches.putIfAbsent(day, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    private HyperLogLog loadOrCreate(LocalDate day) {
+        byte[] data = loadSketch(day);
+        return data == null ? new HyperLogLog() : HyperLogLog.fromBytes(data);
+    }
+
+    private byte[] loadSketch(LocalDate day) {
+        return loadTemplate.execute(status -> activeUserSketchMapper.getSketchByDay(day));
+    }
+}
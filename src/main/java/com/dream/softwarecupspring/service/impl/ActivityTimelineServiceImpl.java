@@ -0,0 +1,220 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.ActivityMapper;
+import com.dream.softwarecupspring.pojo.ActivityEvent;
+import com.dream.softwarecupspring.pojo.StudyRecord;
+import com.dream.softwarecupspring.service.ActivityTimelineService;
+import com.dream.softwarecupspring.service.StudyRecordPartitionService;
+import com.dream.softwarecupspring.utils.RingBuffer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 基于环形缓冲区的活动时间线
+ * 每个学生一个缓冲区；首次读取时从数据库预热，之后的读取不再访问数据库。
+ * 学习心跳等可合并的活动在合并窗口内只保留最新一条，同一数据库行产生的活动只保留一条；
+ * 长时间未访问的学生时间线定时清理，下次读取时重新预热。
+ * 数据库中的活动不足容量时，用已归档月份的学习记录补齐
+ */
+@Service
+public class ActivityTimelineServiceImpl implements ActivityTimelineService {
+
+    private static final Comparator<ActivityEvent> NEWEST_FIRST =
+        Comparator.comparing(ActivityEvent::getCreatedTime, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    @Autowired
+    private ActivityMapper activityMapper;
+
+    @Autowired
+    private StudyRecordPartitionService studyRecordPartitionService;
+
+    @Value("${timeline.student-capacity:20}")
+    private int studentCapacity;
+
+    @Value("${timeline.merge-window-minutes:30}")
+    private long mergeWindowMinutes;
+
+    @Value("${timeline.idle-minutes:30}")
+    private long idleMinutes;
+
+    @Value("${timeline.max-students:10000}")
+    private int maxStudents;
+
+    private final Map<Integer, StudentTimeline> studentTimelines = new ConcurrentHashMap<>();
+
+    @Override
+    public void record(Integer studentId, String type, String title, Integer sourceId) {
+        record(new ActivityEvent(studentId, type, title, LocalDateTime.now(), null,
+            sourceId == null ? null : type + ":" + sourceId));
+    }
+
+    @Override
+    public void record(Integer studentId, String type, String title, String mergeKey) {
+        record(new ActivityEvent(studentId, type, title, LocalDateTime.now(), mergeKey, null));
+    }
+
+    @Override
+    public List<ActivityEvent> getRecentActivities(Integer studentId, int limit) {
+        StudentTimeline timeline = studentTimelines.get(studentId);
+        if (timeline == null) {
+            // 先放入加锁的空时间线再查数据库：预热期间的新活动会等预热完成后再写入，不会丢失；
+            // 也不在 computeIfAbsent 中访问数据库，避免持有哈希桶锁期间钉住载体线程
+            StudentTimeline created = new StudentTimeline(studentCapacity);
+            created.lock.lock();
+            try {
+                timeline = studentTimelines.putIfAbsent(studentId, created);
+                if (timeline == null) {
+                    timeline = created;
+                    try {
+                        warm(created.buffer, loadRecent(studentId, studentCapacity));
+                    } catch (RuntimeException e) {
+                        studentTimelines.remove(studentId, created);
+                        throw e;
+                    }
+                }
+            } finally {
+                created.lock.unlock();
+            }
+        }
+        return timeline.latest(limit);
+    }
+
+    /**
+     * 清理长时间未读取的学生时间线，数量仍超过上限时按最近读取时间淘汰
+     */
+    @Scheduled(fixedDelayString = "${timeline.evict-interval:60000}")
+    public void evictIdle() {
+        long idleBefore = System.currentTimeMillis() - Duration.ofMinutes(idleMinutes).toMillis();
+        studentTimelines.values().removeIf(timeline -> timeline.lastAccess < idleBefore);
+        int excess = studentTimelines.size() - maxStudents;
+        if (excess > 0) {
+            studentTimelines.entrySet().stream()
+                .sorted(Comparator.comparingLong(entry -> entry.getValue().lastAccess))
+                .limit(excess)
+                .toList()
+                .forEach(entry -> studentTimelines.remove(entry.getKey(), entry.getValue()));
+        }
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void record(ActivityEvent event) {
+        if (event.getStudentId() == null) {
+            return;
+        }
+        // 事务回滚时不应出现在时间线上，因此等提交后再写入
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    append(event);
+                }
+            });
+        } else {
+            append(event);
+        }
+    }
+
+    private void append(ActivityEvent event) {
+        // 尚未预热的缓冲区不写入：之后首次读取时会从数据库加载到这条已提交的记录
+        StudentTimeline timeline = studentTimelines.get(event.getStudentId());
+        if (timeline != null) {
+            timeline.add(event, mergeWindowMinutes);
+        }
+    }
+
+    private static void add(RingBuffer<ActivityEvent> buffer, ActivityEvent event, long mergeWindowMinutes) {
+        if (event.getMergeKey() == null && event.getSourceKey() == null) {
+            buffer.add(event);
+            return;
+        }
+        // 预热时已经读到的行，提交回调再写入一次时替换掉预热的那条
+        LocalDateTime windowStart = event.getCreatedTime().minusMinutes(mergeWindowMinutes);
+        buffer.addReplacing(event, old -> Objects.equals(old.getStudentId(), event.getStudentId())
+            && (event.getSourceKey() != null && event.getSourceKey().equals(old.getSourceKey())
+                || event.getMergeKey() != null && event.getMergeKey().equals(old.getMergeKey())
+                    && old.getCreatedTime() != null && old.getCreatedTime().isAfter(windowStart)));
+    }
+
+    private List<ActivityEvent> loadRecent(Integer studentId, int capacity) {
+        List<ActivityEvent> events = activityMapper.getRecentActivitiesByStudentId(studentId, capacity);
+        if (events.size() >= capacity) {
+            return events;
+        }
+        // 不足容量说明数据库中的活动已全部取出，更早的学习记录只可能在归档文件中
+        List<ActivityEvent> merged = new ArrayList<>(events);
+        merged.addAll(archivedStudyEvents(studentId, capacity - events.size()));
+        merged.sort(NEWEST_FIRST);
+        return merged.size() > capacity ? new ArrayList<>(merged.subList(0, capacity)) : merged;
+    }
+
+    private List<ActivityEvent> archivedStudyEvents(Integer studentId, int limit) {
+        // 与数据库查询相同的合并规则：多读若干倍的心跳记录，同一学生、课件、日期只保留最新一条
+        Map<String, ActivityEvent> merged = new LinkedHashMap<>();
+        for (StudyRecord r : studyRecordPartitionService.getArchivedStudyRecords(studentId, limit * 10)) {
+            if (merged.size() >= limit) {
+                break;
+            }
+            String key = r.getStudentId() + ":" + r.getResourceId() + ":"
+                + (r.getCreatedTime() == null ? null : r.getCreatedTime().toLocalDate());
+            merged.putIfAbsent(key, new ActivityEvent(r.getStudentId(), "study", "完成了一次课件学习",
+                r.getCreatedTime(), "study:" + r.getResourceId(), null));
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    private void warm(RingBuffer<ActivityEvent> buffer, List<ActivityEvent> newestFirst) {
+        // 数据库按时间倒序返回，按从旧到新的顺序写入
+        for (int i = newestFirst.size() - 1; i >= 0; i--) {
+            buffer.add(newestFirst.get(i));
+        }
+    }
+
+    /**
+     * 单个学生的时间线；预热期间持有锁，读写都等预热完成
+     */
+    private static class StudentTimeline {
+
+        private final RingBuffer<ActivityEvent> buffer;
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile long lastAccess = System.currentTimeMillis();
+
+        StudentTimeline(int capacity) {
+            this.buffer = new RingBuffer<>(capacity);
+        }
+
+        void add(ActivityEvent event, long mergeWindowMinutes) {
+            lock.lock();
+            try {
+                ActivityTimelineServiceImpl.add(buffer, event, mergeWindowMinutes);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        List<ActivityEvent> latest(int limit) {
+            lastAccess = System.currentTimeMillis();
+            lock.lock();
+            try {
+                return buffer.latest(limit);
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,300 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.StudentAnswerMapper;
+import com.dream.softwarecupspring.pojo.AnswerKey;
+import com.dream.softwarecupspring.pojo.StudentAnswer;
+import com.dream.softwarecupspring.service.AutoGradeService;
+import com.dream.softwarecupspring.service.KnowledgeMasteryService;
+import com.dream.softwarecupspring.service.ScoreAnalyticsService;
+import com.dream.softwarecupspring.sharding.ShardScatterGather;
+import com.dream.softwarecupspring.utils.ObjectiveGrader;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 客观题自动批改
+ * 提交时在工作窃取线程池中异步判分；排队数量有上限，超出时在调用线程上直接判分，避免截止时刻的提交洪峰无限堆积。
+ * 判分时在新事务中锁定提交记录并重新读取学生当前的答案，连续两次提交的批改任务无论谁先执行都以最后一次提交为准
+ */
+@Slf4j
+@Service
+public class AutoGradeServiceImpl implements AutoGradeService {
+
+    private static final int STATUS_SUBMITTED = 1;
+    private static final int STATUS_GRADED = 2;
+    private static final List<Integer> GRADABLE_STATUSES = List.of(STATUS_SUBMITTED, STATUS_GRADED);
+
+    @Autowired
+    private StudentAnswerMapper studentAnswerMapper;
+
+    @Autowired
+    private ScoreAnalyticsService scoreAnalyticsService;
+
+    @Autowired
+    private KnowledgeMasteryService knowledgeMasteryService;
+
+    @Autowired
+    private ShardScatterGather shardScatterGather;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // 队列已满时判分在提交事务的 afterCommit 回调中执行，此时原事务已提交，必须开启新事务才能写入
+    private final TransactionTemplate gradingTemplate;
+
+    private final ForkJoinPool gradingPool;
+
+    private final Semaphore pendingPermits;
+
+    // 作业ID -> (题目ID -> 标准答案)，重新批改时失效
+    private final Map<Integer, Map<Integer, AnswerKey>> answerKeyCache = new ConcurrentHashMap<>();
+
+    public AutoGradeServiceImpl(PlatformTransactionManager transactionManager,
+                                @Value("${grading.parallelism:0}") int parallelism,
+                                @Value("${grading.max-pending:1000}") int maxPending) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.gradingTemplate = new TransactionTemplate(transactionManager);
+        this.gradingTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.gradingPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.pendingPermits = new Semaphore(maxPending);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        gradingPool.shutdown();
+    }
+
+    @Override
+    public void gradeAsync(Integer homeworkId, Integer studentId) {
+        // 提交记录和答案提交之后再批改，否则批改结果可能被未提交的事务覆盖
+        Runnable dispatch = () -> dispatch(homeworkId, studentId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    dispatch.run();
+                }
+            });
+        } else {
+            dispatch.run();
+        }
+    }
+
+    @Override
+    public int regradeHomework(Integer homeworkId) {
+        answerKeyCache.remove(homeworkId);
+        Map<Integer, AnswerKey> keys = answerKeys(homeworkId);
+
+        // 重分片期间同一学生可能在新旧分片上各有一份，只取学生当前所在分片上的答案
+        Map<Integer, List<StudentAnswer>> byStudent = shardScatterGather
+            .gatherOwned(() -> studentAnswerMapper.getSubmittedAnswersByHomeworkId(homeworkId), StudentAnswer::getStudentId)
+            .stream()
+            .collect(Collectors.groupingBy(StudentAnswer::getStudentId, LinkedHashMap::new, Collectors.toList()));
+
+        List<GradeResult> results;
+        try {
+            results = gradingPool.submit(() -> byStudent.values().parallelStream()
+                .map(answers -> grade(keys, answers))
+                .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("重新批改被中断", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("重新批改失败：" + e.getCause().getMessage(), e.getCause());
+        }
+
+        // 每个学生单独一个事务，由 ShardRoutingInterceptor 按学生路由并登记写入：
+        // 重分片期间正在搬迁的学生会等待搬迁结束，写入落在他当时所在的分片上
+        int persisted = 0;
+        for (GradeResult result : results) {
+            if (Boolean.TRUE.equals(transactionTemplate.execute(status -> persist(result, GRADABLE_STATUSES)))) {
+                persisted++;
+            }
+        }
+        scoreAnalyticsService.rebuild(homeworkId);
+        knowledgeMasteryService.reload();
+        return persisted;
+    }
+
+    @Override
+    public void saveManualScores(Integer homeworkId, Integer studentId, Map<Integer, Integer> scores) {
+        if (scores == null || scores.isEmpty()) {
+            return;
+        }
+        Map<Integer, AnswerKey> keys = answerKeys(homeworkId);
+        transactionTemplate.executeWithoutResult(status -> {
+            Integer previousTotal = studentAnswerMapper.getGradedTotal(homeworkId, studentId);
+            List<StudentAnswer> existing = studentAnswerMapper.getStudentAnswers(homeworkId, studentId);
+            Map<Integer, Integer> previousScores = scoresByQuestion(existing);
+            Map<Integer, StudentAnswer> byQuestion = existing.stream()
+                .collect(Collectors.toMap(StudentAnswer::getQuestionId, Function.identity(), (a, b) -> b,
+                    LinkedHashMap::new));
+            List<StudentAnswer> manual = new ArrayList<>(scores.size());
+            scores.forEach((questionId, score) -> {
+                StudentAnswer answer = byQuestion.computeIfAbsent(questionId,
+                    id -> new StudentAnswer(homeworkId, studentId, id, null, null));
+                answer.setScore(score);
+                manual.add(answer);
+            });
+            studentAnswerMapper.updateScoreBatch(studentId, manual);
+            // 客观题按标准答案重新判分，主观题使用教师给出的分数，全部有分后才写入总分
+            GradeResult result = grade(keys, new ArrayList<>(byQuestion.values()));
+            Map<Integer, StudentAnswer> changed = new LinkedHashMap<>();
+            manual.forEach(answer -> changed.put(answer.getQuestionId(), answer));
+            result.scored().forEach(answer -> changed.put(answer.getQuestionId(), answer));
+            if (!persist(result, GRADABLE_STATUSES)) {
+                // 作业已退回草稿，不再保存教师评分
+                status.setRollbackOnly();
+                return;
+            }
+            afterPersist(keys, new Persisted(previousTotal, previousScores, new ArrayList<>(changed.values()), result));
+        });
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void dispatch(Integer homeworkId, Integer studentId) {
+        if (!pendingPermits.tryAcquire()) {
+            // 队列已满，直接在当前线程上批改以形成背压
+            gradeAndPersist(homeworkId, studentId);
+            return;
+        }
+        try {
+            gradingPool.execute(() -> {
+                try {
+                    gradeAndPersist(homeworkId, studentId);
+                } catch (Exception e) {
+                    log.error("自动批改失败，homeworkId={}, studentId={}", homeworkId, studentId, e);
+                } finally {
+                    pendingPermits.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            pendingPermits.release();
+            throw e;
+        }
+    }
+
+    private void gradeAndPersist(Integer homeworkId, Integer studentId) {
+        Map<Integer, AnswerKey> keys = answerKeys(homeworkId);
+        gradingTemplate.executeWithoutResult(status -> {
+            // 锁住提交记录，同一份作业的批改任务依次执行；已被较晚的任务批改、已由教师批改或退回草稿时不再处理
+            if (!Integer.valueOf(STATUS_SUBMITTED).equals(studentAnswerMapper.lockHomeworkStatus(homeworkId, studentId))) {
+                return;
+            }
+            List<StudentAnswer> current = studentAnswerMapper.getStudentAnswers(homeworkId, studentId);
+            if (current.isEmpty()) {
+                return;
+            }
+            // 重新提交时表中仍是上一次批改的得分，掌握度需要用新得分替换它们；
+            // 新提交的主观题答案还没有教师评分，判分时不沿用旧分数
+            Map<Integer, Integer> previousScores = scoresByQuestion(current);
+            List<StudentAnswer> submission = new ArrayList<>(current.size());
+            for (StudentAnswer answer : current) {
+                submission.add(new StudentAnswer(homeworkId, studentId, answer.getQuestionId(), answer.getAnswer(), null));
+            }
+            GradeResult result = grade(keys, submission);
+            Integer previousTotal = studentAnswerMapper.getGradedTotal(homeworkId, studentId);
+            persist(result, List.of(STATUS_SUBMITTED));
+            afterPersist(keys, new Persisted(previousTotal, previousScores, result.scored(), result));
+        });
+    }
+
+    private Map<Integer, AnswerKey> answerKeys(Integer homeworkId) {
+        Map<Integer, AnswerKey> keys = answerKeyCache.get(homeworkId);
+        if (keys != null) {
+            return keys;
+        }
+        // 不在 computeIfAbsent 里查库：ConcurrentHashMap 的桶锁是 synchronized，虚拟线程下会钉住载体线程
+        Map<Integer, AnswerKey> loaded = studentAnswerMapper.getAnswerKeysByHomeworkId(homeworkId)
+            .stream()
+            .collect(Collectors.toMap(AnswerKey::getQuestionId, Function.identity()));
+        keys = answerKeyCache.putIfAbsent(homeworkId, loaded);
+        return keys != null ? keys : loaded;
+    }
+
+    private GradeResult grade(Map<Integer, AnswerKey> keys, List<StudentAnswer> submission) {
+        // 重新批改时 submission 带有教师已给出的主观题分数，会被保留
+        ObjectiveGrader.SubmissionResult graded = ObjectiveGrader.gradeSubmission(keys, submission);
+        StudentAnswer first = submission.get(0);
+        return new GradeResult(first.getHomeworkId(), first.getStudentId(), graded.scored(), graded.total(),
+            graded.pending());
+    }
+
+    /**
+     * 写入得分和总分；提交记录的状态不在 expectedStatuses 中时不写入并返回false
+     */
+    private boolean persist(GradeResult result, List<Integer> expectedStatuses) {
+        // 所有题目都有分数时写入总分并标记为已批改；仍有主观题未批改时总分留空，保持已提交状态等待教师批改，
+        // 避免把只含客观题的部分分数当成最终成绩展示
+        int updated = studentAnswerMapper.updateHomeworkScore(result.homeworkId(), result.studentId(),
+            result.pending() ? null : result.total(), result.pending() ? STATUS_SUBMITTED : STATUS_GRADED,
+            expectedStatuses);
+        if (updated == 0) {
+            return false;
+        }
+        if (!result.scored().isEmpty()) {
+            studentAnswerMapper.updateScoreBatch(result.studentId(), result.scored());
+        }
+        return true;
+    }
+
+    // 在写入成绩的事务中调用：成绩分布和掌握度都在这个事务提交后才更新
+    private void afterPersist(Map<Integer, AnswerKey> keys, Persisted persisted) {
+        updateScoreSketch(persisted);
+        updateMastery(keys, persisted);
+    }
+
+    private void updateMastery(Map<Integer, AnswerKey> keys, Persisted persisted) {
+        for (StudentAnswer answer : persisted.changed()) {
+            AnswerKey key = keys.get(answer.getQuestionId());
+            if (key != null) {
+                knowledgeMasteryService.recordAnswer(answer.getStudentId(), key.getKnowledge(),
+                    persisted.previousScores().get(answer.getQuestionId()), answer.getScore(), key.getScore());
+            }
+        }
+    }
+
+    private static Map<Integer, Integer> scoresByQuestion(List<StudentAnswer> answers) {
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (StudentAnswer answer : answers) {
+            if (answer.getScore() != null) {
+                scores.put(answer.getQuestionId(), answer.getScore());
+            }
+        }
+        return scores;
+    }
+
+    private void updateScoreSketch(Persisted persisted) {
+        GradeResult result = persisted.result();
+        scoreAnalyticsService.updateScore(result.homeworkId(), persisted.previousTotal(),
+            result.pending() ? null : result.total());
+    }
+
+    private record GradeResult(Integer homeworkId, Integer studentId, List<StudentAnswer> scored,
+                               int total, boolean pending) {
+    }
+
+    private record Persisted(Integer previousTotal, Map<Integer, Integer> previousScores,
+                             List<StudentAnswer> changed, GradeResult result) {
+    }
+}
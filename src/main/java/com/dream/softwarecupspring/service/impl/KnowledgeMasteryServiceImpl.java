@@ -0,0 +1,310 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.KnowledgeMasteryMapper;
+import com.dream.softwarecupspring.pojo.KnowledgeScore;
+import com.dream.softwarecupspring.service.KnowledgeMasteryService;
+import com.dream.softwarecupspring.sharding.ShardContext;
+import com.dream.softwarecupspring.sharding.ShardScatterGather;
+import com.dream.softwarecupspring.utils.MasteryMatrix;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 知识点掌握度分析
+ * 启动时优先从快照文件恢复矩阵以便立即提供查询，随后在后台从数据库重新汇总替换（快照可能过期，
+ * 停机期间的批改也不在快照中）；批改结果增量写入，定时和关闭时保存快照。
+ * 增量在批改事务提交后按提交序号写入；重新汇总时记下每个分片打开一致性读快照时的序号，
+ * 补增量时跳过序号不大于它的（这些提交已经在汇总结果里）
+ */
+@Slf4j
+@Service
+public class KnowledgeMasteryServiceImpl implements KnowledgeMasteryService {
+
+    private static final int BUCKET_WIDTH = 10;
+
+    @Autowired
+    private KnowledgeMasteryMapper knowledgeMasteryMapper;
+
+    @Autowired
+    private ShardScatterGather shardScatterGather;
+
+    @Value("${mastery.snapshot-path:data/mastery.snapshot}")
+    private String snapshotPath;
+
+    private volatile MasteryMatrix matrix = new MasteryMatrix();
+
+    // 同一时间只有一次重新加载
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    // 重新加载期间到达的增量，加载完成后补到新矩阵上；为null表示没有在加载
+    private final ReentrantLock deltaLock = new ReentrantLock();
+    private List<Delta> pendingDeltas;
+
+    // 批改事务从提交前到增量写入矩阵期间持有读锁，打开分片快照时持有写锁：
+    // 每次提交要么连同增量一起完成在快照之前，要么整个发生在快照之后
+    private final ReentrantReadWriteLock commitGate = new ReentrantReadWriteLock();
+    private final AtomicLong commitSequence = new AtomicLong();
+
+    // 汇总查询在可重复读的只读事务中执行，整个流式读取使用打开快照时的数据
+    private final TransactionTemplate snapshotTemplate;
+
+    public KnowledgeMasteryServiceImpl(PlatformTransactionManager transactionManager) {
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void init() {
+        Path file = Paths.get(snapshotPath);
+        if (Files.exists(file)) {
+            try {
+                matrix = MasteryMatrix.restore(file);
+                Thread reconcile = new Thread(this::reconcile, "mastery-reconcile");
+                reconcile.setDaemon(true);
+                reconcile.start();
+                return;
+            } catch (IOException e) {
+                log.warn("掌握度快照恢复失败，改为从数据库加载：{}", e.getMessage());
+            }
+        }
+        reload();
+    }
+
+    @Override
+    public void recordAnswer(Integer studentId, String knowledge, Integer previousScore, Integer score, Integer fullScore) {
+        if (studentId == null || knowledge == null || fullScore == null || fullScore <= 0) {
+            return;
+        }
+        float earned = (score == null ? 0 : score) - (previousScore == null ? 0 : previousScore);
+        float possible = (score == null ? 0 : fullScore) - (previousScore == null ? 0 : fullScore);
+        if (earned == 0 && possible == 0) {
+            return;
+        }
+        Delta delta = new Delta(studentId, knowledge, earned, possible);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(List.of(delta));
+            return;
+        }
+        // 同一事务的增量收集在一起，提交后一次写入
+        @SuppressWarnings("unchecked")
+        List<Delta> deltas = (List<Delta>) TransactionSynchronizationManager.getResource(this);
+        if (deltas == null) {
+            deltas = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(this, deltas);
+            TransactionSynchronizationManager.registerSynchronization(new CommitHook(deltas));
+        }
+        deltas.add(delta);
+    }
+
+    @Override
+    public void reload() {
+        reloadLock.lock();
+        try {
+            setPendingDeltas(new ArrayList<>());
+            try {
+                MasteryMatrix fresh = new MasteryMatrix();
+                // 分片 -> 打开快照时的提交序号
+                Map<Integer, Long> snapshotSequences = new ConcurrentHashMap<>();
+                // 每个分片各自流式读取，矩阵的写入自带锁，可以并行累加
+                shardScatterGather.onAllShards(() -> snapshotTemplate.execute(status -> {
+                    snapshotSequences.put(currentShard(), openSnapshot());
+                    knowledgeMasteryMapper.streamKnowledgeScores(context -> {
+                        KnowledgeScore row = context.getResultObject();
+                        fresh.add(row.getStudentId(), row.getKnowledge(), row.getScore(), row.getFullScore());
+                    });
+                    return null;
+                }));
+                // 快照之后才提交的批改不在结果中，补上这部分增量后再替换
+                deltaLock.lock();
+                try {
+                    for (Delta delta : pendingDeltas) {
+                        Long snapshot = snapshotSequences.get(shardScatterGather.shardOf(delta.studentId()));
+                        if (snapshot == null || delta.sequence() > snapshot) {
+                            fresh.add(delta.studentId(), delta.knowledge(), delta.earned(), delta.possible());
+                        }
+                    }
+                    matrix = fresh;
+                } finally {
+                    deltaLock.unlock();
+                }
+            } finally {
+                setPendingDeltas(null);
+            }
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    @Override
+    public List<Map<String, Object>> getTopKnowledgeScore(int limit) {
+        return toRows(matrix.topKnowledge(limit, false));
+    }
+
+    @Override
+    public List<Map<String, Object>> getKnowledgeDistribution(String knowledge) {
+        int[] buckets = matrix.distribution(knowledge, BUCKET_WIDTH);
+        List<Map<String, Object>> distribution = new ArrayList<>(buckets.length);
+        for (int i = 0; i < buckets.length; i++) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            int low = i * BUCKET_WIDTH;
+            row.put("range", low >= 100 ? "100" : low + "-" + (low + BUCKET_WIDTH - 1));   // 掌握度区间
+            row.put("count", buckets[i]);                                                   // 人次
+            distribution.add(row);
+        }
+        return distribution;
+    }
+
+    @Override
+    public List<Map<String, Object>> getWeakestKnowledge(Integer studentId, int limit) {
+        return toRows(matrix.weakestKnowledge(studentId, limit));
+    }
+
+    /**
+     * 定时保存快照，重启时可直接映射文件恢复
+     */
+    @Scheduled(fixedDelayString = "${mastery.snapshot-interval:600000}")
+    @PreDestroy
+    public void snapshot() {
+        Path file = Paths.get(snapshotPath);
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            matrix.snapshot(file);
+        } catch (IOException e) {
+            log.error("保存掌握度快照失败", e);
+        }
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    // 在提交闸门的写锁下打开当前分片的一致性读快照，返回此时的提交序号
+    private long openSnapshot() {
+        commitGate.writeLock().lock();
+        try {
+            knowledgeMasteryMapper.openSnapshot();
+            return commitSequence.get();
+        } finally {
+            commitGate.writeLock().unlock();
+        }
+    }
+
+    // 调用方持有提交闸门的读锁（或已在事务之外）：分配提交序号并写入矩阵
+    private void apply(List<Delta> deltas) {
+        long sequence = commitSequence.incrementAndGet();
+        deltaLock.lock();
+        try {
+            for (Delta delta : deltas) {
+                matrix.add(delta.studentId(), delta.knowledge(), delta.earned(), delta.possible());
+                if (pendingDeltas != null) {
+                    pendingDeltas.add(delta.withSequence(sequence));
+                }
+            }
+        } finally {
+            deltaLock.unlock();
+        }
+    }
+
+    private void setPendingDeltas(List<Delta> deltas) {
+        deltaLock.lock();
+        try {
+            pendingDeltas = deltas;
+        } finally {
+            deltaLock.unlock();
+        }
+    }
+
+    private static int currentShard() {
+        Integer shard = ShardContext.current();
+        return shard == null ? 0 : shard;
+    }
+
+    private void reconcile() {
+        try {
+            reload();
+            log.info("掌握度矩阵已按数据库重新汇总");
+        } catch (RuntimeException e) {
+            log.error("掌握度矩阵重新汇总失败，继续使用快照数据", e);
+        }
+    }
+
+    private List<Map<String, Object>> toRows(List<MasteryMatrix.Ranked<String>> ranked) {
+        List<Map<String, Object>> rows = new ArrayList<>(ranked.size());
+        for (MasteryMatrix.Ranked<String> item : ranked) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("knowledge", item.key());                       // 知识点
+            row.put("score", Math.round(item.value() * 10) / 10.0); // 掌握度（0~100）
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    private record Delta(Integer studentId, String knowledge, float earned, float possible, long sequence) {
+
+        Delta(Integer studentId, String knowledge, float earned, float possible) {
+            this(studentId, knowledge, earned, possible, 0);
+        }
+
+        Delta withSequence(long sequence) {
+            return new Delta(studentId, knowledge, earned, possible, sequence);
+        }
+    }
+
+    /**
+     * 批改事务的提交回调：提交前取得闸门读锁，提交后写入增量，结束时释放
+     */
+    private class CommitHook implements TransactionSynchronization {
+
+        private final List<Delta> deltas;
+        private boolean locked;
+
+        CommitHook(List<Delta> deltas) {
+            this.deltas = deltas;
+        }
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            commitGate.readLock().lock();
+            locked = true;
+        }
+
+        @Override
+        public void afterCommit() {
+            apply(deltas);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResourceIfPossible(KnowledgeMasteryServiceImpl.this);
+            if (locked) {
+                locked = false;
+                commitGate.readLock().unlock();
+            }
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.ReshardMapper;
+import com.dream.softwarecupspring.mapper.SchedulerLockMapper;
+import com.dream.softwarecupspring.service.ReshardService;
+import com.dream.softwarecupspring.service.ShardStateService;
+import com.dream.softwarecupspring.sharding.ShardContext;
+import com.dream.softwarecupspring.sharding.ShardRouter;
+import com.dream.softwarecupspring.sharding.ShardingProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 在线重分片，逐个学生搬迁：
+ * 1. 全局分片状态进入迁移状态，所有节点确认后带 studentId 的写入都会登记；先等待登记开始前已开始的事务结束
+ * 2. 对每个分片位置会变化的学生：冻结其写入并等待所有节点上进行中的写事务结束，把源分片的数据原样镜像到目标分片
+ *    （目标分片上该学生的旧行先删除，ID被其他学生占用时中止），之后该学生按新分片路由，再删除源分片上的数据
+ * 3. 冻结全部尚未搬迁的学生，重新扫描并搬迁迁移期间新出现的学生，然后切换分片数
+ * 迁移状态保存在分片0上（见 ShardStateService），中途失败或节点重启后，在任意节点用同样的目标分片数重新执行即可继续；
+ * 同一时间只有取得 scheduler_lock 租约的节点执行重分片
+ */
+@Slf4j
+@Service
+public class ReshardServiceImpl implements ReshardService {
+
+    // 以 student_id 分片的表
+    private static final List<String> STUDENT_TABLES = List.of(
+        "student_questions", "study_record", "ai_question", "student_homework", "student_answers");
+    private static final String LOCK_NAME = "reshard";
+
+    @Autowired
+    private ReshardMapper reshardMapper;
+
+    @Autowired
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    @Autowired
+    private ObjectProvider<ShardingProperties> shardingProperties;
+
+    @Autowired
+    private ShardStateService shardStateService;
+
+    @Autowired
+    private SchedulerLockMapper schedulerLockMapper;
+
+    @Value("${sharding.reshard.drain-millis:5000}")
+    private long drainMillis;
+
+    @Value("${sharding.reshard.freeze-timeout-millis:30000}")
+    private long freezeTimeoutMillis;
+
+    // 每搬迁一名学生续期一次
+    @Value("${sharding.reshard.lock-seconds:600}")
+    private long lockSeconds;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public ReshardServiceImpl(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Override
+    public Map<String, Object> reshard(int newShardCount) {
+        ShardRouter router = shardRouter.getIfAvailable();
+        ShardingProperties properties = shardingProperties.getIfAvailable();
+        if (router == null || properties == null) {
+            throw new IllegalStateException("未启用分片");
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("重分片正在进行中");
+        }
+        try {
+            renewLock();
+            try {
+                return reshard(router, properties, newShardCount);
+            } finally {
+                schedulerLockMapper.release(LOCK_NAME, nodeId);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    // 持有租约时执行：以全局分片状态为准检查目标分片数，再逐个学生搬迁
+    private Map<String, Object> reshard(ShardRouter router, ShardingProperties properties, int newShardCount) {
+        shardStateService.refresh();
+        int oldShardCount = router.shardCount();
+        if (newShardCount < 1 || newShardCount > properties.getShards().size() || newShardCount == oldShardCount) {
+            throw new IllegalArgumentException("目标分片数不正确：" + newShardCount);
+        }
+        Integer unfinished = router.migrationTarget();
+        if (unfinished != null && unfinished != newShardCount) {
+            throw new IllegalStateException("有未完成的重分片，需先以目标分片数 " + unfinished + " 重新执行");
+        }
+        try {
+            if (unfinished == null) {
+                shardStateService.beginMigration(newShardCount, freezeTimeoutMillis);
+                Thread.sleep(drainMillis);
+            } else {
+                shardStateService.awaitCurrentState(freezeTimeoutMillis);
+            }
+            Map<String, Integer> copied = new LinkedHashMap<>();
+            Map<String, Integer> deleted = new LinkedHashMap<>();
+
+            // ====== 逐个学生搬迁 ======
+            Map<Integer, int[]> moves = findMoves(router, oldShardCount, newShardCount);
+            log.info("重分片 {} -> {}，需要搬迁 {} 名学生", oldShardCount, newShardCount, moves.size());
+            moveAll(router, moves, copied, deleted);
+
+            // ====== 冻结剩余学生，搬迁迁移期间新出现的学生后切换 ======
+            shardStateService.freezeUnmoved(freezeTimeoutMillis);
+            Map<Integer, int[]> late = findMoves(router, oldShardCount, newShardCount);
+            moveAll(router, late, copied, deleted);
+            shardStateService.finishMigration();
+
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("fromShardCount", oldShardCount);
+            result.put("toShardCount", newShardCount);
+            result.put("movedStudents", moves.size() + late.size());
+            result.put("copiedRows", copied);
+            result.put("deletedRows", deleted);
+            log.info("重分片完成：{}", result);
+            return result;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("重分片被中断", e);
+        } finally {
+            // 失败时解除冻结，已搬迁学生仍按新分片路由
+            shardStateService.releaseFreezes();
+        }
+    }
+
+    private void renewLock() {
+        schedulerLockMapper.insertIfAbsent(LOCK_NAME);
+        if (schedulerLockMapper.tryAcquire(LOCK_NAME, nodeId, lockSeconds) == 0) {
+            throw new IllegalStateException("其他节点正在执行重分片");
+        }
+    }
+
+    /**
+     * 源分片上仍有数据、分片位置会变化的学生：学生ID -> {源分片, 目标分片}
+     * 已搬迁的学生只剩上次失败时没删掉的残留数据
+     */
+    private Map<Integer, int[]> findMoves(ShardRouter router, int oldShardCount, int newShardCount) {
+        Map<Integer, int[]> moves = new TreeMap<>();
+        for (int shard = 0; shard < oldShardCount; shard++) {
+            int source = shard;
+            for (String table : STUDENT_TABLES) {
+                for (Integer studentId : ShardContext.runOn(source, () -> reshardMapper.getStudentIds(table))) {
+                    int target = ShardRouter.shardFor(studentId, newShardCount);
+                    if (target != source) {
+                        moves.putIfAbsent(studentId, new int[]{source, target});
+                    }
+                }
+            }
+        }
+        return moves;
+    }
+
+    private void moveAll(ShardRouter router, Map<Integer, int[]> moves,
+                         Map<String, Integer> copied, Map<String, Integer> deleted) throws InterruptedException {
+        for (Map.Entry<Integer, int[]> move : moves.entrySet()) {
+            Integer studentId = move.getKey();
+            int source = move.getValue()[0];
+            int target = move.getValue()[1];
+            renewLock();
+            if (router.isMoved(studentId)) {
+                deleteFrom(source, studentId, deleted);
+                continue;
+            }
+            shardStateService.freeze(studentId, freezeTimeoutMillis);
+            try {
+                mirror(studentId, source, target, copied);
+                shardStateService.markMoved(studentId);
+                // 镜像提交后到删除前，跨分片汇总可能短暂地把该学生算两次
+                deleteFrom(source, studentId, deleted);
+            } finally {
+                shardStateService.unfreeze(studentId);
+            }
+        }
+    }
+
+    /**
+     * 在目标分片的一个事务中用源分片的数据替换该学生的全部行（学生已冻结，源分片数据不会再变）
+     */
+    private void mirror(Integer studentId, int source, int target, Map<String, Integer> copied) {
+        Map<String, List<Map<String, Object>>> rows = new LinkedHashMap<>();
+        for (String table : STUDENT_TABLES) {
+            rows.put(table, ShardContext.runOn(source, () -> reshardMapper.getRowsByStudent(table, studentId)));
+        }
+        ShardContext.runOn(target, () -> transactionTemplate.execute(status -> {
+            rows.forEach((table, tableRows) -> {
+                checkIds(table, studentId, target, tableRows);
+                reshardMapper.deleteByStudent(table, studentId);
+                tableRows.forEach(row -> reshardMapper.copyRow(table, row));
+            });
+            return null;
+        }));
+        rows.forEach((table, tableRows) -> copied.merge(table, tableRows.size(), Integer::sum));
+    }
+
+    // 各分片的自增ID互不重叠时不会冲突；冲突说明ID分配有问题，继续覆盖会毁掉其他学生的数据
+    private void checkIds(String table, Integer studentId, int target, List<Map<String, Object>> rows) {
+        List<Object> ids = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            if (row.get("id") != null) {
+                ids.add(row.get("id"));
+            }
+        }
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<Integer> conflicts = reshardMapper.getConflictingIds(table, studentId, ids);
+        if (!conflicts.isEmpty()) {
+            throw new IllegalStateException("分片 " + target + " 的表 " + table + " 中ID " + conflicts
+                + " 已被其他学生占用，无法搬迁学生 " + studentId);
+        }
+    }
+
+    private void deleteFrom(int source, Integer studentId, Map<String, Integer> deleted) {
+        ShardContext.runOn(source, () -> transactionTemplate.execute(status -> {
+            for (String table : STUDENT_TABLES) {
+                deleted.merge(table, reshardMapper.deleteByStudent(table, studentId), Integer::sum);
+            }
+            return null;
+        }));
+    }
+}
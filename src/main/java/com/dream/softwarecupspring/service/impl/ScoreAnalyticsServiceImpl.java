@@ -0,0 +1,296 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.ScoreSketchMapper;
+import com.dream.softwarecupspring.service.ScoreAnalyticsService;
+import com.dream.softwarecupspring.sharding.ShardScatterGather;
+import com.dream.softwarecupspring.utils.ScoreSketch;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 作业成绩分布分析
+ * 每次作业在内存中维护一个ScoreSketch，成绩变化时增量更新（先移除旧成绩再加入新成绩）；
+ * 定时把本节点累积的增减量合并进数据库中的摘要，多个节点的变化互不覆盖。
+ * 数据库中的摘要只会被合并，不会被某个节点的结果整体覆盖：从成绩表重建的结果只在摘要不存在时插入，
+ * 或者换算成与现有摘要的差值再合并
+ */
+@Slf4j
+@Service
+public class ScoreAnalyticsServiceImpl implements ScoreAnalyticsService {
+
+    private static final double[] QUANTILES = {0.1, 0.25, 0.5, 0.75, 0.9};
+
+    @Autowired
+    private ScoreSketchMapper scoreSketchMapper;
+
+    @Autowired
+    private ShardScatterGather shardScatterGather;
+
+    private final TransactionTemplate transactionTemplate;
+
+    // 加载可能发生在学生事务的 afterCommit 回调中，那时连接仍绑定在学生所在的分片上；
+    // 挂起事务后摘要（全局表）和成绩（各分片）的查询分别路由
+    private final TransactionTemplate loadTemplate;
+
+    private final Map<Integer, HomeworkScores> sketches = new ConcurrentHashMap<>();
+
+    private final Set<Integer> dirty = ConcurrentHashMap.newKeySet();
+
+    public ScoreAnalyticsServiceImpl(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.loadTemplate = new TransactionTemplate(transactionManager);
+        this.loadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+    }
+
+    @Override
+    public void updateScore(Integer homeworkId, Integer previousScore, Integer newScore) {
+        if (homeworkId == null || previousScore == null && newScore == null) {
+            return;
+        }
+        // 事务回滚时成绩并未改变，因此等提交后再更新摘要
+        Runnable apply = () -> {
+            HomeworkScores scores = sketches.get(homeworkId);
+            if (scores == null) {
+                Loaded loaded = loadIfAbsent(homeworkId);
+                if (loaded.fromScores()) {
+                    // 刚从成绩表重建，表中已经是本次提交之后的成绩，再叠加一次就重复了
+                    return;
+                }
+                scores = loaded.scores();
+            }
+            scores.update(previousScore, newScore);
+            dirty.add(homeworkId);
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply.run();
+                }
+            });
+        } else {
+            apply.run();
+        }
+    }
+
+    @Override
+    public void rebuild(Integer homeworkId) {
+        HomeworkScores rebuilt = loadTemplate.execute(status -> {
+            byte[] data = scoreSketchMapper.getSketchByHomeworkId(homeworkId);
+            ScoreSketch fresh = buildFromScores(homeworkId);
+            return data == null ? HomeworkScores.created(fresh) : HomeworkScores.corrected(ScoreSketch.fromBytes(data), fresh);
+        });
+        // 原来尚未写回的增减量对应的成绩已经包含在重建结果里，随旧对象一起丢弃
+        sketches.put(homeworkId, rebuilt);
+        dirty.add(homeworkId);
+    }
+
+    @Override
+    public Map<String, Object> getStudentRank(Integer homeworkId, Integer studentId) {
+        Map<String, Object> rank = new LinkedHashMap<>();
+        Integer score = scoreSketchMapper.getStudentScore(homeworkId, studentId);
+        ScoreSketch sketch = scores(homeworkId).view();
+
+        rank.put("score", score);                                                             // 学生成绩
+        rank.put("beatPercent", score == null ? null : sketch.percentileRank(score));         // 超过的同学百分比
+        rank.put("median", sketch.quantile(0.5));                                             // 中位数
+        rank.put("count", sketch.count());                                                    // 已批改人数
+
+        return rank;
+    }
+
+    @Override
+    public Map<String, Object> getScoreDistribution(List<Integer> homeworkIds) {
+        ScoreSketch merged = new ScoreSketch();
+        for (Integer homeworkId : homeworkIds) {
+            merged.merge(scores(homeworkId).view());
+        }
+        return describe(merged);
+    }
+
+    @Override
+    public Map<String, Object> getClassScoreDistribution(Integer teacherId) {
+        return getScoreDistribution(scoreSketchMapper.getHomeworkIdsByTeacherId(teacherId));
+    }
+
+    /**
+     * 定时把有变化的摘要合并写回数据库
+     */
+    @Scheduled(fixedDelayString = "${score-sketch.flush-interval:60000}")
+    @PreDestroy
+    public void flush() {
+        for (Integer homeworkId : dirty) {
+            // 先移出脏集合再写，写入期间的新变更会重新标记，不会丢失
+            dirty.remove(homeworkId);
+            HomeworkScores scores = sketches.get(homeworkId);
+            if (scores == null) {
+                continue;
+            }
+            Pending pending = scores.drain();
+            try {
+                ScoreSketch stored = transactionTemplate.execute(status -> persist(homeworkId, pending));
+                scores.refresh(stored);
+            } catch (RuntimeException e) {
+                scores.restore(pending);
+                dirty.add(homeworkId);
+                log.error("保存作业 {} 的成绩摘要失败", homeworkId, e);
+            }
+        }
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private HomeworkScores scores(Integer homeworkId) {
+        HomeworkScores scores = sketches.get(homeworkId);
+        return scores != null ? scores : loadIfAbsent(homeworkId).scores();
+    }
+
+    private Loaded loadIfAbsent(Integer homeworkId) {
+        HomeworkScores loaded = loadTemplate.execute(status -> load(homeworkId));
+        // 并发加载时以先放入的为准
+        HomeworkScores existing = sketches.putIfAbsent(homeworkId, loaded);
+        if (existing != null) {
+            return new Loaded(existing, false);
+        }
+        if (loaded.created != null) {
+            dirty.add(homeworkId);
+        }
+        return new Loaded(loaded, loaded.created != null);
+    }
+
+    private HomeworkScores load(Integer homeworkId) {
+        byte[] data = scoreSketchMapper.getSketchByHomeworkId(homeworkId);
+        if (data != null) {
+            // 其他节点尚未写回的增减量也不在摘要里，与成绩表的人数对不上是正常的，不能据此重建；
+            // 摘要之外改过成绩（如直接改库）时由 rebuild 修正
+            return new HomeworkScores(ScoreSketch.fromBytes(data));
+        }
+        return HomeworkScores.created(buildFromScores(homeworkId));
+    }
+
+    // 在事务中锁定数据库中的摘要，合并本节点的增减量；本节点新建的摘要只在其他节点还没有插入时写入
+    private ScoreSketch persist(Integer homeworkId, Pending pending) {
+        scoreSketchMapper.insertIfAbsent(homeworkId,
+            (pending.created() != null ? pending.created() : new ScoreSketch()).toBytes());
+        ScoreSketch stored = ScoreSketch.fromBytes(scoreSketchMapper.getSketchForUpdate(homeworkId));
+        stored.merge(pending.added());
+        stored.subtract(pending.removed());
+        scoreSketchMapper.saveOrUpdate(homeworkId, stored.toBytes());
+        return stored;
+    }
+
+    private ScoreSketch buildFromScores(Integer homeworkId) {
+        ScoreSketch sketch = new ScoreSketch();
+        // 各学生的成绩分散在各自的分片上
+        for (Integer score : shardScatterGather.gatherList(() -> scoreSketchMapper.getGradedScoresByHomeworkId(homeworkId), null, 0)) {
+            sketch.add(score);
+        }
+        return sketch;
+    }
+
+    private Map<String, Object> describe(ScoreSketch sketch) {
+        Map<String, Object> distribution = new LinkedHashMap<>();
+        distribution.put("count", sketch.count());     // 人数
+        distribution.put("avgScore", sketch.mean());   // 平均分
+        for (double q : QUANTILES) {
+            distribution.put("p" + Math.round(q * 100), sketch.quantile(q));   // 分位数
+        }
+        return distribution;
+    }
+
+    /**
+     * 尚未写回数据库的变化：created 为本节点从成绩表新建、数据库中还没有的摘要，added/removed 为增减量
+     */
+    private record Pending(ScoreSketch created, ScoreSketch added, ScoreSketch removed) {
+    }
+
+    /**
+     * 加载结果：fromScores 表示本次调用从成绩表新建了摘要
+     */
+    private record Loaded(HomeworkScores scores, boolean fromScores) {
+    }
+
+    /**
+     * 一次作业的成绩摘要：view 供查询，added/removed 记录上次写回后本节点的变化
+     */
+    private static class HomeworkScores {
+
+        private ScoreSketch view;
+        private ScoreSketch added = new ScoreSketch();
+        private ScoreSketch removed = new ScoreSketch();
+        private ScoreSketch created;
+
+        HomeworkScores(ScoreSketch view) {
+            this.view = view;
+        }
+
+        static HomeworkScores created(ScoreSketch fresh) {
+            HomeworkScores scores = new HomeworkScores(fresh);
+            scores.created = fresh.copy();
+            return scores;
+        }
+
+        // 以成绩表为准修正：与数据库中摘要的差值记为本节点的增减量，写回时合并
+        static HomeworkScores corrected(ScoreSketch stored, ScoreSketch fresh) {
+            HomeworkScores scores = new HomeworkScores(fresh);
+            scores.added = fresh.copy();
+            scores.added.subtract(stored);
+            scores.removed = stored.copy();
+            scores.removed.subtract(fresh);
+            return scores;
+        }
+
+        synchronized ScoreSketch view() {
+            return view;
+        }
+
+        synchronized void update(Integer previousScore, Integer newScore) {
+            if (previousScore != null) {
+                view.remove(previousScore);
+                removed.add(previousScore);
+            }
+            if (newScore != null) {
+                view.add(newScore);
+                added.add(newScore);
+            }
+        }
+
+        synchronized Pending drain() {
+            Pending pending = new Pending(created, added, removed);
+            added = new ScoreSketch();
+            removed = new ScoreSketch();
+            created = null;
+            return pending;
+        }
+
+        // 写回后以数据库中的合并结果（含其他节点的变化）为准，再叠加写回期间本节点的新变化
+        synchronized void refresh(ScoreSketch stored) {
+            ScoreSketch fresh = stored.copy();
+            fresh.merge(added);
+            fresh.subtract(removed);
+            view = fresh;
+        }
+
+        synchronized void restore(Pending pending) {
+            if (pending.created() != null) {
+                created = pending.created();
+            }
+            added.merge(pending.added());
+            removed.merge(pending.removed());
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.ShardStateMapper;
+import com.dream.softwarecupspring.pojo.ShardState;
+import com.dream.softwarecupspring.service.ShardStateService;
+import com.dream.softwarecupspring.sharding.ShardRouter;
+import com.dream.softwarecupspring.sharding.ShardingProperties;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 全局分片状态的同步（未启用分片时不做任何事）
+ * 分片数、重分片目标、已搬迁和冻结的学生都保存在分片0上，每次修改版本号加1；
+ * 每个节点定期读取并应用到自己的 ShardRouter，等本节点上冻结学生的写事务结束后才记录已确认的版本。
+ * 重分片在修改状态后等待所有在线节点确认，冻结因此对所有节点生效；
+ * 节点超过 valid-millis 没能同步时自己拒绝写入，超过 node-timeout-millis 没有心跳的节点不再等待
+ */
+@Slf4j
+@Service
+public class ShardStateServiceImpl implements ShardStateService {
+
+    private static final long ACK_WAIT_MILLIS = 200;
+    private static final long POLL_MILLIS = 50;
+
+    @Autowired
+    private ShardStateMapper shardStateMapper;
+
+    @Autowired
+    private ObjectProvider<ShardRouter> shardRouter;
+
+    @Autowired
+    private ObjectProvider<ShardingProperties> shardingProperties;
+
+    @Value("${sharding.state.valid-millis:5000}")
+    private long validMillis;
+
+    @Value("${sharding.state.node-timeout-millis:15000}")
+    private long nodeTimeoutMillis;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    private final TransactionTemplate transactionTemplate;
+
+    // 状态和两个学生集合在同一个一致性读中取得
+    private final TransactionTemplate snapshotTemplate;
+
+    // 定时同步和重分片线程的主动同步互斥，保证版本按顺序应用
+    private final ReentrantLock refreshLock = new ReentrantLock();
+    private long appliedVersion;
+    private long acknowledgedVersion;
+
+    public ShardStateServiceImpl(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate = new TransactionTemplate(transactionManager);
+        this.snapshotTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.snapshotTemplate.setReadOnly(true);
+    }
+
+    @PostConstruct
+    public void init() {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            return;
+        }
+        if (nodeTimeoutMillis <= validMillis) {
+            throw new IllegalStateException("sharding.state.node-timeout-millis 必须大于 sharding.state.valid-millis");
+        }
+        int configured = router.shardCount();
+        shardStateMapper.initState(configured);
+        refresh();
+        if (router.shardCount() != configured) {
+            log.warn("配置的分片数 {} 与全局分片状态 {} 不一致，按全局分片状态路由", configured, router.shardCount());
+        }
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${sharding.state.refresh-millis:1000}")
+    public void refresh() {
+        ShardRouter router = shardRouter.getIfAvailable();
+        if (router == null) {
+            return;
+        }
+        refreshLock.lock();
+        try {
+            Snapshot snapshot = snapshotTemplate.execute(status -> load());
+            ShardState state = snapshot.state();
+            if (state.getVersion() != appliedVersion) {
+                int available = shardingProperties.getObject().getShards().size();
+                int needed = Math.max(state.getShardCount(), state.getTargetCount() == null ? 0 : state.getTargetCount());
+                router.blockWrites(needed <= available ? null
+                    : "本节点只配置了 " + available + " 个分片，全局分片状态需要 " + needed + " 个，暂停写入学生数据");
+                router.applyState(state.getShardCount(), state.getTargetCount(), snapshot.moved(), snapshot.frozen(),
+                    Boolean.TRUE.equals(state.getFreezeUnmoved()));
+                appliedVersion = state.getVersion();
+            }
+            // 本节点上冻结学生的写入还没结束时只发心跳，不确认新版本
+            if (router.awaitFrozenWrites(ACK_WAIT_MILLIS)) {
+                acknowledgedVersion = appliedVersion;
+            }
+            shardStateMapper.saveNodeVersion(nodeId, acknowledgedVersion);
+            router.renewState(validMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.warn("同步全局分片状态失败", e);
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+
+    @Override
+    public void beginMigration(int newShardCount, long timeoutMillis) throws InterruptedException {
+        long version = publish(() -> {
+            if (shardStateMapper.beginMigration(newShardCount) == 0) {
+                throw new IllegalStateException("已有未完成的重分片");
+            }
+        });
+        awaitNodes(version, timeoutMillis, "开始重分片");
+    }
+
+    @Override
+    public void awaitCurrentState(long timeoutMillis) throws InterruptedException {
+        awaitNodes(shardStateMapper.getState().getVersion(), timeoutMillis, "继续重分片");
+    }
+
+    @Override
+    public void freeze(Integer studentId, long timeoutMillis) throws InterruptedException {
+        long version = publish(() -> shardStateMapper.addFrozenStudent(studentId));
+        try {
+            awaitNodes(version, timeoutMillis, "等待学生 " + studentId + " 的写入事务结束");
+        } catch (IllegalStateException | InterruptedException e) {
+            publish(() -> shardStateMapper.removeFrozenStudent(studentId));
+            throw e;
+        }
+    }
+
+    @Override
+    public void unfreeze(Integer studentId) {
+        publish(() -> shardStateMapper.removeFrozenStudent(studentId));
+    }
+
+    @Override
+    public void markMoved(Integer studentId) {
+        // 其他节点已确认冻结，在看到这次修改之前不会写入该学生，不需要等待确认
+        publish(() -> shardStateMapper.addMovedStudent(studentId));
+    }
+
+    @Override
+    public void freezeUnmoved(long timeoutMillis) throws InterruptedException {
+        long version = publish(() -> shardStateMapper.setFreezeUnmoved(true));
+        try {
+            awaitNodes(version, timeoutMillis, "等待未搬迁学生的写入事务结束");
+        } catch (IllegalStateException | InterruptedException e) {
+            publish(() -> shardStateMapper.setFreezeUnmoved(false));
+            throw e;
+        }
+    }
+
+    @Override
+    public void releaseFreezes() {
+        publish(() -> {
+            shardStateMapper.clearFrozenStudents();
+            shardStateMapper.setFreezeUnmoved(false);
+        });
+    }
+
+    @Override
+    public void finishMigration() {
+        publish(() -> {
+            shardStateMapper.finishMigration();
+            shardStateMapper.clearMovedStudents();
+            shardStateMapper.clearFrozenStudents();
+        });
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private Snapshot load() {
+        ShardState state = shardStateMapper.getState();
+        if (state == null) {
+            throw new IllegalStateException("全局分片状态不存在，请先执行 db/shard_state.sql");
+        }
+        if (state.getVersion() == appliedVersion) {
+            return new Snapshot(state, null, null);
+        }
+        return new Snapshot(state, new HashSet<>(shardStateMapper.getMovedStudents()),
+            new HashSet<>(shardStateMapper.getFrozenStudents()));
+    }
+
+    // 在分片0的一个事务中修改状态并递增版本，随后立即应用到本节点，返回新版本
+    private long publish(Runnable change) {
+        long version = transactionTemplate.execute(status -> {
+            change.run();
+            shardStateMapper.bumpVersion();
+            return shardStateMapper.getState().getVersion();
+        });
+        refresh();
+        return version;
+    }
+
+    private void awaitNodes(long version, long timeoutMillis, String action) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            // 本节点的确认也在同步时完成
+            refresh();
+            LocalDateTime aliveAfter = shardStateMapper.now().minus(nodeTimeoutMillis, ChronoUnit.MILLIS);
+            List<String> lagging = shardStateMapper.getLaggingNodes(version, aliveAfter);
+            if (lagging.isEmpty()) {
+                return;
+            }
+            if (System.nanoTime() - deadline > 0) {
+                throw new IllegalStateException(action + "超时，未确认的节点：" + lagging);
+            }
+            Thread.sleep(POLL_MILLIS);
+        }
+    }
+
+    private record Snapshot(ShardState state, Set<Integer> moved, Set<Integer> frozen) {
+    }
+}
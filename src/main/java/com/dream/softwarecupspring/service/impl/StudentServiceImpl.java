@@ -2,20 +2,35 @@ package com.dream.softwarecupspring.service.impl;
 
 import com.dream.softwarecupspring.mapper.*;
 import com.dream.softwarecupspring.pojo.*;
+import com.dream.softwarecupspring.service.ActiveUserService;
+import com.dream.softwarecupspring.service.ActivityTimelineService;
+import com.dream.softwarecupspring.service.AutoGradeService;
+import com.dream.softwarecupspring.service.KnowledgeMasteryService;
+import com.dream.softwarecupspring.service.ScoreAnalyticsService;
 import com.dream.softwarecupspring.service.StudentService;
+import com.dream.softwarecupspring.service.StudyRecordPartitionService;
+import com.dream.softwarecupspring.sharding.ShardScatterGather;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 @Service
 @Transactional
 public class StudentServiceImpl implements StudentService {
 
+    private static final int RECENT_ACTIVITY_LIMIT = 10;
+    private static final int WEAK_KNOWLEDGE_LIMIT = 5;
+
     @Autowired
     private StudentMapper studentMapper;
     
@@ -31,6 +46,30 @@ public class StudentServiceImpl implements StudentService {
     @Autowired
     private StudentQuestionMapper studentQuestionMapper;
 
+    @Autowired
+    private StudentAnswerMapper studentAnswerMapper;
+
+    @Autowired
+    private ActivityTimelineService activityTimelineService;
+
+    @Autowired
+    private ActiveUserService activeUserService;
+
+    @Autowired
+    private AutoGradeService autoGradeService;
+
+    @Autowired
+    private StudyRecordPartitionService studyRecordPartitionService;
+
+    @Autowired
+    private ScoreAnalyticsService scoreAnalyticsService;
+
+    @Autowired
+    private KnowledgeMasteryService knowledgeMasteryService;
+
+    @Autowired
+    private ShardScatterGather shardScatterGather;
+
     // ==================== 学习相关方法 ====================
 
     @Override
@@ -41,26 +80,51 @@ public class StudentServiceImpl implements StudentService {
 
     @Override
     public Map<String, Object> getStudyStats(Integer studentId) {
+        return buildStudyStats(studentId, new HashMap<>());
+    }
+
+    private Map<String, Object> buildStudyStats(Integer studentId, Map<String, Object> memo) {
         Map<String, Object> stats = new HashMap<>();
         
-        // 获取学习统计数据
-        stats.put("totalStudyTime", studyRecordMapper.getTotalStudyTime(studentId));           // 总学习时长
-        stats.put("todayStudyTime", studyRecordMapper.getTodayStudyTime(studentId));           // 今日学习时长
+        // 获取学习统计数据；归档月份的分区已删除，累计类指标要加上归档汇总
+        StudyRecordSummary archived = archivedStudySummary(studentId, memo);
+        Number totalStudyTime = studyRecordMapper.getTotalStudyTime(studentId);
+        Number studyDays = studyRecordMapper.getStudyDaysCount(studentId);
+        stats.put("totalStudyTime", archived == null ? totalStudyTime
+            : plus(totalStudyTime, archived.getStudyTime()));                                   // 总学习时长
+        stats.put("todayStudyTime", cached(memo, "todayStudyTime", () -> studyRecordMapper.getTodayStudyTime(studentId))); // 今日学习时长
         stats.put("weekStudyTime", studyRecordMapper.getWeekStudyTime(studentId));             // 本周学习时长
-        stats.put("completedCourseware", studyRecordMapper.getCompletedCoursewareCount(studentId)); // 完成课件数
+        stats.put("completedCourseware", archived == null ? studyRecordMapper.getCompletedCoursewareCount(studentId)
+            : (Object) studyRecordPartitionService.getCompletedResourceCount(studentId));      // 完成课件数
         stats.put("totalCourseware", studyRecordMapper.getTotalCoursewareCount(studentId));    // 总课件数
-        stats.put("avgProgress", studyRecordMapper.getAverageProgress(studentId));             // 平均进度
-        stats.put("studyDays", studyRecordMapper.getStudyDaysCount(studentId));                // 学习天数
+        stats.put("avgProgress", averageProgress(studentId, memo));                            // 平均进度
+        stats.put("studyDays", archived == null ? studyDays
+            : plus(studyDays, archived.getStudyDays()));                                        // 学习天数
         stats.put("recentStudyRecords", studyRecordMapper.getRecentStudyRecords(studentId));   // 最近学习记录
         
         return stats;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getStudyRecords(Integer studentId, Map<String, Object> params) {
+        String type = (String) params.get("type");
+        int page = (Integer) params.getOrDefault("page", 1);
+        int size = (Integer) params.getOrDefault("size", 20);
+        // 带上时间范围，数据库只扫描相关的月分区，归档文件也按月份跳过
+        return studyRecordPartitionService.getStudyRecords(studentId, type,
+            periodStart((String) params.get("period")), null, page, size);
+    }
+
     @Override
     public void recordStudyBehavior(StudyRecord studyRecord) {
         studyRecord.setCreatedTime(LocalDateTime.now());
         studyRecord.setUpdatedTime(LocalDateTime.now());
         studyRecordMapper.insert(studyRecord);
+        // 学习过程中会周期性上报，同一课件在合并窗口内只保留一条活动
+        activityTimelineService.record(studyRecord.getStudentId(), "study", "完成了一次课件学习",
+            "study:" + studyRecord.getResourceId());
+        activeUserService.recordActive(studyRecord.getStudentId());
     }
 
     @Override
@@ -68,6 +132,9 @@ public class StudentServiceImpl implements StudentService {
         aiQuestion.setCreatedTime(LocalDateTime.now());
         aiQuestion.setUpdatedTime(LocalDateTime.now());
         aiQuestionMapper.insert(aiQuestion);
+        activityTimelineService.record(aiQuestion.getStudentId(), "ai", "向AI提问：" + abbreviate(aiQuestion.getQuestion()),
+            aiQuestion.getId());
+        activeUserService.recordActive(aiQuestion.getStudentId());
     }
 
     // ==================== 作业相关方法 ====================
@@ -120,6 +187,10 @@ public class StudentServiceImpl implements StudentService {
         if (existing != null) {
             studentHomework.setId(existing.getId());
             studentHomeworkMapper.updateById(studentHomework);
+            if (Integer.valueOf(2).equals(existing.getStatus())) {
+                // 重新提交后回到待批改状态，原成绩先从成绩分布中移除，批改后再加入新成绩
+                scoreAnalyticsService.updateScore(existing.getHomeworkId(), existing.getScore(), null);
+            }
         } else {
             studentHomework.setCreatedTime(LocalDateTime.now());
             studentHomeworkMapper.insert(studentHomework);
@@ -127,14 +198,23 @@ public class StudentServiceImpl implements StudentService {
         
         // 保存答题记录
         saveStudentAnswers(studentHomework);
+        activityTimelineService.record(studentHomework.getStudentId(), "homework", "提交了作业", studentHomework.getId());
+
+        // 客观题在事务提交后异步自动批改
+        autoGradeService.gradeAsync(studentHomework.getHomeworkId(), studentHomework.getStudentId());
     }
 
     @Override
     public Map<String, Object> getHomeworkStats(Integer studentId) {
+        return buildHomeworkStats(studentId, new HashMap<>());
+    }
+
+    private Map<String, Object> buildHomeworkStats(Integer studentId, Map<String, Object> memo) {
         Map<String, Object> stats = new HashMap<>();
         
         stats.put("totalHomework", studentHomeworkMapper.getTotalHomeworkCount(studentId));     // 总作业数
-        stats.put("submittedHomework", studentHomeworkMapper.getSubmittedHomeworkCount(studentId)); // 已提交作业数
+        stats.put("submittedHomework", cached(memo, "submittedHomework",
+            () -> studentHomeworkMapper.getSubmittedHomeworkCount(studentId)));                 // 已提交作业数
         stats.put("gradedHomework", studentHomeworkMapper.getGradedHomeworkCount(studentId));   // 已批改作业数
         stats.put("avgScore", studentHomeworkMapper.getAverageScore(studentId));                // 平均分
         stats.put("bestScore", studentHomeworkMapper.getBestScore(studentId));                  // 最高分
@@ -144,6 +224,16 @@ public class StudentServiceImpl implements StudentService {
         return stats;
     }
 
+    @Override
+    public Map<String, Object> getHomeworkRank(Integer homeworkId, Integer studentId) {
+        return scoreAnalyticsService.getStudentRank(homeworkId, studentId);
+    }
+
+    @Override
+    public List<Map<String, Object>> getWeakKnowledge(Integer studentId) {
+        return knowledgeMasteryService.getWeakestKnowledge(studentId, WEAK_KNOWLEDGE_LIMIT);
+    }
+
     // ==================== 互动问答相关方法 ====================
 
     @Override
@@ -152,6 +242,9 @@ public class StudentServiceImpl implements StudentService {
         studentQuestion.setCreatedTime(LocalDateTime.now());
         studentQuestion.setUpdatedTime(LocalDateTime.now());
         studentQuestionMapper.insert(studentQuestion);
+        activityTimelineService.record(studentQuestion.getStudentId(), "discussion", "提交了问题：" + studentQuestion.getTitle(),
+            studentQuestion.getId());
+        activeUserService.recordActive(studentQuestion.getStudentId());
     }
 
     @Override
@@ -161,26 +254,40 @@ public class StudentServiceImpl implements StudentService {
 
     @Override
     public StudentQuestion getQuestionDetail(Integer questionId) {
-        return studentQuestionMapper.selectById(questionId);
+        return findQuestion(questionId);
     }
 
     @Override
     public void rateAnswer(Integer questionId, Integer rating) {
-        StudentQuestion question = new StudentQuestion();
-        question.setId(questionId);
-        question.setRating(rating);
-        question.setUpdatedTime(LocalDateTime.now());
-        studentQuestionMapper.updateById(question);
+        // 评分请求只带问题ID，需要先查出提问学生，更新语句才能路由到所在分片
+        StudentQuestion rated = findQuestion(questionId);
+        if (rated == null) {
+            return;
+        }
+        updateRating(rated, rating);
+        activityTimelineService.record(rated.getStudentId(), "rating", "评价了教师回答：" + rating + "分", rated.getId());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<ActivityEvent> getRecentActivities(Integer studentId) {
+        return activityTimelineService.getRecentActivities(studentId, RECENT_ACTIVITY_LIMIT);
     }
 
     @Override
     public Map<String, Object> getInteractStats(Integer studentId) {
+        return buildInteractStats(studentId, new HashMap<>());
+    }
+
+    private Map<String, Object> buildInteractStats(Integer studentId, Map<String, Object> memo) {
         Map<String, Object> stats = new HashMap<>();
         
-        stats.put("totalQuestions", studentQuestionMapper.getTotalQuestionsCount(studentId));   // 总提问数
+        stats.put("totalQuestions", cached(memo, "totalQuestions",
+            () -> studentQuestionMapper.getTotalQuestionsCount(studentId)));                     // 总提问数
         stats.put("answeredQuestions", studentQuestionMapper.getAnsweredQuestionsCount(studentId)); // 已回答数
         stats.put("pendingQuestions", studentQuestionMapper.getPendingQuestionsCount(studentId)); // 待回答数
-        stats.put("avgRating", studentQuestionMapper.getAverageRating(studentId));               // 平均评分
+        // getAverageRating 与 getAverageRatingByStudent 是同一条SQL，共用一个缓存键
+        stats.put("avgRating", cached(memo, "avgRating", () -> studentQuestionMapper.getAverageRating(studentId))); // 平均评分
         stats.put("questionsByType", studentQuestionMapper.getQuestionsByType(studentId));       // 按类型统计
         stats.put("recentQuestions", studentQuestionMapper.getRecentQuestions(studentId));       // 最近问题
         
@@ -189,31 +296,73 @@ public class StudentServiceImpl implements StudentService {
 
     // ==================== 私有辅助方法 ====================
 
+    private StudentQuestion findQuestion(Integer questionId) {
+        // 只有问题ID时不知道所在分片，在所有分片上查找；自增ID在各分片间唯一，以提问学生所在分片上的为准
+        return shardScatterGather.findOwned(() -> studentQuestionMapper.selectById(questionId), StudentQuestion::getStudentId);
+    }
+
+    private void updateRating(StudentQuestion rated, Integer rating) {
+        StudentQuestion question = new StudentQuestion();
+        question.setId(rated.getId());
+        question.setStudentId(rated.getStudentId()); // 仅用于分片路由，updateById不会更新该列
+        question.setRating(rating);
+        question.setUpdatedTime(LocalDateTime.now());
+        studentQuestionMapper.updateById(question);
+    }
+
+    private LocalDateTime periodStart(String period) {
+        if (period == null) {
+            return null;
+        }
+        LocalDate today = LocalDate.now();
+        switch (period) {
+            case "today":
+                return today.atStartOfDay();
+            case "week":
+                return today.with(DayOfWeek.MONDAY).atStartOfDay();
+            case "month":
+                return today.withDayOfMonth(1).atStartOfDay();
+            case "year":
+                return today.withDayOfYear(1).atStartOfDay();
+            default:
+                return null;
+        }
+    }
+
+    private String abbreviate(String text) {
+        if (text == null) {
+            return "";
+        }
+        return text.length() > 30 ? text.substring(0, 30) : text;
+    }
+
     private void saveStudentAnswers(StudentHomework studentHomework) {
-        // 这里需要根据前端传递的答案数据保存到student_answers表
-        // 具体实现根据你的数据结构来定
-        if (studentHomework.getScores() != null) {
-            for (Map.Entry<String, Integer> entry : studentHomework.getScores().entrySet()) {
-                // 保存学生答案逻辑
-                // studentAnswerMapper.saveOrUpdate(studentAnswer);
-            }
+        // 前端传递的答案为 题目ID -> 答案，保存到student_answers表，供自动批改和重新批改使用
+        Map<String, String> answers = studentHomework.getAnswers();
+        if (answers == null || answers.isEmpty()) {
+            return;
+        }
+        List<StudentAnswer> rows = new ArrayList<>(answers.size());
+        for (Map.Entry<String, String> entry : answers.entrySet()) {
+            rows.add(new StudentAnswer(studentHomework.getHomeworkId(), studentHomework.getStudentId(),
+                Integer.valueOf(entry.getKey()), entry.getValue(), null));
         }
+        studentAnswerMapper.saveOrUpdateBatch(rows);
     }
 
     // ==================== 评分系统相关方法 ====================
 
     @Override
     public void submitRating(Integer questionId, Integer rating) {
-        StudentQuestion question = new StudentQuestion();
-        question.setId(questionId);
-        question.setRating(rating);
-        question.setUpdatedTime(LocalDateTime.now());
-        studentQuestionMapper.updateById(question);
+        StudentQuestion rated = findQuestion(questionId);
+        if (rated != null) {
+            updateRating(rated, rating);
+        }
     }
 
     @Override
     public Integer getRating(Integer questionId) {
-        StudentQuestion question = studentQuestionMapper.selectById(questionId);
+        StudentQuestion question = findQuestion(questionId);
         return question != null ? question.getRating() : null;
     }
 
@@ -225,13 +374,104 @@ public class StudentServiceImpl implements StudentService {
 
     @Override
     public Map<String, Object> getRatingStats(Integer studentId) {
+        return buildRatingStats(studentId, new HashMap<>());
+    }
+
+    private Map<String, Object> buildRatingStats(Integer studentId, Map<String, Object> memo) {
         Map<String, Object> stats = new HashMap<>();
         
         stats.put("totalRatings", studentQuestionMapper.getTotalRatingsCount(studentId));       // 总评分数
-        stats.put("avgRating", studentQuestionMapper.getAverageRatingByStudent(studentId));     // 平均评分
+        stats.put("avgRating", cached(memo, "avgRating", () -> studentQuestionMapper.getAverageRatingByStudent(studentId))); // 平均评分
         stats.put("ratingDistribution", studentQuestionMapper.getRatingDistribution(studentId)); // 评分分布
         stats.put("recentRatings", studentQuestionMapper.getRecentRatedQuestions(studentId));   // 最近评分
         
         return stats;
     }
+
+    // ==================== 首页聚合相关方法 ====================
+
+    private static final List<String> HOME_SECTIONS = List.of(
+        "homeStats", "courseware", "studyStats", "homeworkStats", "interactStats", "ratingStats", "recentActivities");
+
+    @Override
+    @Transactional(readOnly = true)
+    public Map<String, Object> getHomeBundle(Integer studentId, List<String> sections) {
+        // 同一次请求内共享的查询结果，避免各板块重复执行相同的SQL
+        Map<String, Object> memo = new HashMap<>();
+        Map<String, Object> bundle = new LinkedHashMap<>();
+        List<String> wanted = (sections == null || sections.isEmpty()) ? HOME_SECTIONS : sections;
+
+        for (String section : wanted) {
+            if (bundle.containsKey(section)) {
+                continue;
+            }
+            switch (section) {
+                case "homeStats":
+                    bundle.put(section, buildHomeStats(studentId, memo));
+                    break;
+                case "courseware":
+                    bundle.put(section, getCoursewareList(studentId));
+                    break;
+                case "studyStats":
+                    bundle.put(section, buildStudyStats(studentId, memo));
+                    break;
+                case "homeworkStats":
+                    bundle.put(section, buildHomeworkStats(studentId, memo));
+                    break;
+                case "interactStats":
+                    bundle.put(section, buildInteractStats(studentId, memo));
+                    break;
+                case "ratingStats":
+                    bundle.put(section, buildRatingStats(studentId, memo));
+                    break;
+                case "recentActivities":
+                    bundle.put(section, getRecentActivities(studentId));
+                    break;
+                default:
+                    throw new IllegalArgumentException("未知的数据板块：" + section);
+            }
+        }
+        return bundle;
+    }
+
+    private Map<String, Object> buildHomeStats(Integer studentId, Map<String, Object> memo) {
+        Map<String, Object> stats = new HashMap<>();
+
+        stats.put("todayStudyTime", cached(memo, "todayStudyTime", () -> studyRecordMapper.getTodayStudyTime(studentId)));   // 今日学习时长
+        stats.put("completedHomework", cached(memo, "submittedHomework",
+            () -> studentHomeworkMapper.getSubmittedHomeworkCount(studentId)));                                            // 完成作业数
+        stats.put("interactionCount", cached(memo, "totalQuestions",
+            () -> studentQuestionMapper.getTotalQuestionsCount(studentId)));                                               // 参与讨论次数
+        stats.put("studyProgress", averageProgress(studentId, memo));                                                      // 学习进度
+
+        return stats;
+    }
+
+    private StudyRecordSummary archivedStudySummary(Integer studentId, Map<String, Object> memo) {
+        return cached(memo, "archivedStudySummary", () -> studyRecordPartitionService.getArchivedStudySummary(studentId));
+    }
+
+    private Object averageProgress(Integer studentId, Map<String, Object> memo) {
+        return cached(memo, "avgProgress", () -> {
+            StudyRecordSummary archived = archivedStudySummary(studentId, memo);
+            return archived == null ? studyRecordMapper.getAverageProgress(studentId)
+                : studyRecordPartitionService.getAverageProgress(studentId, archived);
+        });
+    }
+
+    // 热数据的统计值（可能为null）加上归档汇总中的同一指标
+    private static long plus(Number hot, Number archived) {
+        return (hot == null ? 0 : hot.longValue()) + (archived == null ? 0 : archived.longValue());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T cached(Map<String, Object> memo, String key, Supplier<T> loader) {
+        // 结果可能为null（如无评分时的AVG），用containsKey区分“未查询”和“查询结果为空”
+        if (memo.containsKey(key)) {
+            return (T) memo.get(key);
+        }
+        T value = loader.get();
+        memo.put(key, value);
+        return value;
+    }
 } 
\ No newline at end of file
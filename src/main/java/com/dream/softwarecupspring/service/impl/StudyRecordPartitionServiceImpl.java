@@ -0,0 +1,382 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.SchedulerLockMapper;
+import com.dream.softwarecupspring.mapper.StudyRecordPartitionMapper;
+import com.dream.softwarecupspring.pojo.StudyRecord;
+import com.dream.softwarecupspring.pojo.StudyRecordSummary;
+import com.dream.softwarecupspring.service.StudyRecordPartitionService;
+import com.dream.softwarecupspring.utils.StudyRecordArchive;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * study_record / ai_question 按月分区管理
+ * 分区名 pYYYYMM 存放该月及以前（尚未归档）的数据，pmax 兜底；
+ * study_record 超过保留期限的分区写成列式压缩文件 pYYYYMM.col.gz 后删除，查询时与数据库结果合并；
+ * 归档时同时按学生写入月度汇总，学习时长、学习天数等统计不必再读归档文件。
+ * 集群部署时维护任务只在取得 scheduler_lock 租约的节点上执行，归档目录必须是各节点共享的目录；
+ * 哪些月份已归档以数据库中现存的最早月分区为准，每次查询重新读取，不在节点内缓存
+ */
+@Slf4j
+@Service
+public class StudyRecordPartitionServiceImpl implements StudyRecordPartitionService {
+
+    private static final String STUDY_RECORD = "study_record";
+    private static final String AI_QUESTION = "ai_question";
+    private static final String MAX_PARTITION = "pmax";
+    private static final String ARCHIVE_SUFFIX = ".col.gz";
+    private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("'p'yyyyMM");
+    private static final int SUMMARY_BATCH_SIZE = 500;
+    private static final String LOCK_NAME = "study_record_partition";
+    private static final Comparator<StudyRecord> NEWEST_FIRST =
+        Comparator.comparing(StudyRecord::getCreatedTime, Comparator.nullsLast(Comparator.reverseOrder()));
+
+    @Autowired
+    private StudyRecordPartitionMapper partitionMapper;
+
+    @Autowired
+    private SchedulerLockMapper schedulerLockMapper;
+
+    // 归档由持有租约的节点写入，查询可能落在任意节点，多节点部署时应指向共享存储（如NFS挂载目录）
+    @Value("${study-record.archive.dir:data/archive/study_record}")
+    private String archiveDir;
+
+    @Value("${study-record.archive.horizon-months:12}")
+    private int horizonMonths;
+
+    @Value("${study-record.partition.ahead-months:3}")
+    private int aheadMonths;
+
+    // 租约要长于一次维护的耗时，每归档一个分区续期一次
+    @Value("${study-record.partition.lock-seconds:3600}")
+    private long lockSeconds;
+
+    private final String nodeId = ManagementFactory.getRuntimeMXBean().getName();
+
+    @PostConstruct
+    public void checkArchiveDir() {
+        if (!Paths.get(archiveDir).isAbsolute()) {
+            log.warn("学习记录归档目录 {} 是相对路径，多节点部署时请将 study-record.archive.dir 配置为共享目录", archiveDir);
+        }
+    }
+
+    @Override
+    @Scheduled(cron = "${study-record.partition.cron:0 30 3 * * *}")
+    public void maintainPartitions() {
+        if (!acquireLock()) {
+            log.info("其他节点正在维护学习记录分区，本节点跳过");
+            return;
+        }
+        try {
+            YearMonth current = YearMonth.now();
+            for (String table : List.of(STUDY_RECORD, AI_QUESTION)) {
+                createPartitions(table, current);
+            }
+            archiveStudyRecords(current.minusMonths(horizonMonths));
+        } finally {
+            schedulerLockMapper.release(LOCK_NAME, nodeId);
+        }
+    }
+
+    @Override
+    public Map<String, Object> getStudyRecords(Integer studentId, String resourceType,
+                                               LocalDateTime from, LocalDateTime to, int page, int size) {
+        int offset = (Math.max(page, 1) - 1) * size;
+        int needed = offset + size;
+
+        List<StudyRecord> records = new ArrayList<>(
+            partitionMapper.getStudyRecords(studentId, resourceType, from, to, needed));
+        int total = partitionMapper.countStudyRecords(studentId, resourceType, from, to);
+
+        // 归档月份都早于数据库中的数据，从最新的月份往前读，凑够 offset+size 条之后的文件只计数
+        Predicate<StudyRecord> filter = r -> (resourceType == null || resourceType.equals(r.getResourceType()))
+            && (from == null || r.getCreatedTime() != null && !r.getCreatedTime().isBefore(from))
+            && (to == null || r.getCreatedTime() != null && r.getCreatedTime().isBefore(to));
+        List<Path> files = archiveFiles(hotFrom());
+        for (int i = files.size() - 1; i >= 0; i--) {
+            // 最早的归档文件还包含更早（含创建时间为空）的记录，没有下界
+            LocalDateTime lowerBound = i == 0 ? null : monthOf(files.get(i - 1)).plusMonths(1).atDay(1).atStartOfDay();
+            LocalDateTime upperBound = monthOf(files.get(i)).plusMonths(1).atDay(1).atStartOfDay();
+            if (from != null && !upperBound.isAfter(from) || to != null && lowerBound != null && !lowerBound.isBefore(to)) {
+                continue;
+            }
+            if (records.size() < needed) {
+                List<StudyRecord> rows = readArchive(files.get(i), studentId, filter);
+                rows.sort(NEWEST_FIRST);
+                records.addAll(rows.subList(0, Math.min(rows.size(), needed - records.size())));
+                total += rows.size();
+            } else if (resourceType == null && (from == null || lowerBound != null && !from.isAfter(lowerBound))
+                    && (to == null || !to.isBefore(upperBound))) {
+                total += countArchive(files.get(i), studentId);
+            } else {
+                total += readArchive(files.get(i), studentId, filter).size();
+            }
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("records", offset >= records.size()
+            ? List.of() : records.subList(offset, Math.min(needed, records.size())));     // 当前页记录
+        result.put("total", total);   // 总数
+        result.put("page", page);
+        result.put("size", size);
+        return result;
+    }
+
+    @Override
+    public List<StudyRecord> getArchivedStudyRecords(Integer studentId, int limit) {
+        List<StudyRecord> result = new ArrayList<>();
+        List<Path> files = archiveFiles(hotFrom());
+        // 从最新的归档月份往前读，够数即停
+        for (int i = files.size() - 1; i >= 0 && result.size() < limit; i--) {
+            List<StudyRecord> rows = readArchive(files.get(i), studentId, r -> true);
+            rows.sort(NEWEST_FIRST);
+            result.addAll(rows.subList(0, Math.min(rows.size(), limit - result.size())));
+        }
+        return result;
+    }
+
+    @Override
+    public StudyRecordSummary getArchivedStudySummary(Integer studentId) {
+        StudyRecordSummary summary = partitionMapper.getArchivedSummary(studentId, hotFrom());
+        return summary == null || summary.getRecordCount() == null || summary.getRecordCount() == 0 ? null : summary;
+    }
+
+    @Override
+    public Double getAverageProgress(Integer studentId, StudyRecordSummary archived) {
+        StudyRecordSummary hot = partitionMapper.getProgressSummary(studentId);
+        long sum = archived.getProgressSum() + (hot == null || hot.getProgressSum() == null ? 0 : hot.getProgressSum());
+        long count = archived.getProgressCount() + (hot == null || hot.getProgressCount() == null ? 0 : hot.getProgressCount());
+        return count == 0 ? null : (double) sum / count;
+    }
+
+    @Override
+    public int getCompletedResourceCount(Integer studentId) {
+        // 同一资源可能在归档月份和热数据中都达到过100，按资源ID去重
+        Set<Integer> completed = new HashSet<>(partitionMapper.getCompletedResourceIds(studentId));
+        completed.addAll(partitionMapper.getArchivedCompletedResourceIds(studentId));
+        return completed.size();
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    // 取得或续期维护任务的租约
+    private boolean acquireLock() {
+        schedulerLockMapper.insertIfAbsent(LOCK_NAME);
+        return schedulerLockMapper.tryAcquire(LOCK_NAME, nodeId, lockSeconds) == 1;
+    }
+
+    private void createPartitions(String table, YearMonth current) {
+        List<String> partitions = partitionMapper.getPartitionNames(table);
+        if (partitions.isEmpty()) {
+            log.warn("{} 尚未分区，请先执行 db/study_record_partition.sql", table);
+            return;
+        }
+        YearMonth highest = partitions.stream()
+            .filter(name -> !MAX_PARTITION.equals(name))
+            .map(this::monthOf)
+            .max(Comparator.naturalOrder())
+            .orElse(null);
+        YearMonth first;
+        if (highest != null) {
+            first = highest.plusMonths(1);
+        } else {
+            // 首次拆分时 pmax 中是全部历史数据，从最早的月份开始建分区，否则历史会全部落进当前月
+            LocalDateTime oldest = partitionMapper.getMinCreatedTime(table);
+            first = oldest == null || YearMonth.from(oldest).isAfter(current) ? current : YearMonth.from(oldest);
+        }
+        // 只能在最高分区之后追加，所有新月份在一条 REORGANIZE 中从 pmax 拆出
+        Map<String, String> months = new LinkedHashMap<>();
+        for (YearMonth month = first; !month.isAfter(current.plusMonths(aheadMonths)); month = month.plusMonths(1)) {
+            months.put(month.format(PARTITION_FORMAT), month.plusMonths(1).atDay(1).toString());
+        }
+        if (!months.isEmpty()) {
+            partitionMapper.addMonthPartitions(table, months);
+            log.info("{} 新增分区 {}", table, months.keySet());
+        }
+    }
+
+    private void archiveStudyRecords(YearMonth horizon) {
+        Path dir = Paths.get(archiveDir);
+        for (String partition : partitionMapper.getPartitionNames(STUDY_RECORD)) {
+            if (MAX_PARTITION.equals(partition) || !monthOf(partition).isBefore(horizon)) {
+                continue;
+            }
+            if (!acquireLock()) {
+                log.warn("学习记录分区维护的租约已被其他节点取得，停止归档");
+                return;
+            }
+            try {
+                Files.createDirectories(dir);
+                int archived;
+                SummaryBuilder summaries = new SummaryBuilder(monthOf(partition).atDay(1));
+                // 按 (学生, 时间) 顺序流式读出，逐行交给写入器，不在内存中缓存整个分区
+                try (StudyRecordArchive.Writer writer = new StudyRecordArchive.Writer(dir.resolve(partition + ARCHIVE_SUFFIX))) {
+                    partitionMapper.streamStudyRecordPartition(partition, context -> {
+                        try {
+                            writer.append(context.getResultObject());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                        summaries.add(context.getResultObject());
+                    });
+                    writer.finish();
+                    archived = writer.size();
+                }
+                saveSummaries(summaries);
+                // 先落盘和写汇总再删除分区；如果中途中断，下次会重新导出覆盖同名文件和同月汇总，
+                // 分区删除前该月仍是热数据，查询按最早的月分区排除该月的归档文件和汇总，不会重复统计
+                partitionMapper.dropPartition(STUDY_RECORD, partition);
+                log.info("已归档学习记录分区 {}，共 {} 条", partition, archived);
+            } catch (IOException | UncheckedIOException e) {
+                log.error("归档学习记录分区 {} 失败", partition, e);
+                return;
+            }
+        }
+    }
+
+    private void saveSummaries(SummaryBuilder summaries) {
+        List<StudyRecordSummary> rows = summaries.finish();
+        for (int i = 0; i < rows.size(); i += SUMMARY_BATCH_SIZE) {
+            partitionMapper.saveSummaries(rows.subList(i, Math.min(rows.size(), i + SUMMARY_BATCH_SIZE)));
+        }
+        List<StudyRecord> completed = summaries.completed;
+        for (int i = 0; i < completed.size(); i += SUMMARY_BATCH_SIZE) {
+            partitionMapper.saveCompletedResources(completed.subList(i, Math.min(completed.size(), i + SUMMARY_BATCH_SIZE)));
+        }
+    }
+
+    // 数据库中最早的月分区的起始日期，更早的月份都已归档；其他节点可能刚归档过，每次都重新读取
+    private LocalDate hotFrom() {
+        return partitionMapper.getPartitionNames(STUDY_RECORD).stream()
+            .filter(name -> !MAX_PARTITION.equals(name))
+            .map(this::monthOf)
+            .min(Comparator.naturalOrder())
+            .map(month -> month.atDay(1))
+            .orElse(null);
+    }
+
+    // 已归档月份的文件，按月份升序；分区还没删除的月份（正在归档）仍以数据库为准
+    private List<Path> archiveFiles(LocalDate hotFrom) {
+        Path dir = Paths.get(archiveDir);
+        if (!Files.isDirectory(dir)) {
+            return new ArrayList<>();
+        }
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.filter(p -> p.getFileName().toString().matches("p\\d{6}\\" + ARCHIVE_SUFFIX))
+                .filter(p -> hotFrom == null || monthOf(p).atDay(1).isBefore(hotFrom))
+                .sorted()
+                .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private List<StudyRecord> readArchive(Path file, Integer studentId, Predicate<StudyRecord> filter) {
+        try {
+            return StudyRecordArchive.read(file, studentId, filter);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private int countArchive(Path file, Integer studentId) {
+        try {
+            return StudyRecordArchive.count(file, studentId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private YearMonth monthOf(String partition) {
+        return YearMonth.parse(partition, PARTITION_FORMAT);
+    }
+
+    private YearMonth monthOf(Path file) {
+        return monthOf(file.getFileName().toString().replace(ARCHIVE_SUFFIX, ""));
+    }
+
+    /**
+     * 归档一个月分区时逐行累计学生汇总；行按学生ID有序，只需保留当前学生的去重集合
+     */
+    private static class SummaryBuilder {
+
+        private final LocalDate month;
+        private final List<StudyRecordSummary> summaries = new ArrayList<>();
+        private final List<StudyRecord> completed = new ArrayList<>();
+        private final Set<LocalDate> days = new HashSet<>();
+        private final Set<Integer> completedResources = new HashSet<>();
+        private StudyRecordSummary current;
+
+        SummaryBuilder(LocalDate month) {
+            this.month = month;
+        }
+
+        void add(StudyRecord r) {
+            if (r.getStudentId() == null) {
+                return;
+            }
+            if (current == null || !current.getStudentId().equals(r.getStudentId())) {
+                close();
+                current = new StudyRecordSummary(r.getStudentId(), month, 0L, 0, 0L, 0, 0);
+            }
+            current.setRecordCount(current.getRecordCount() + 1);
+            if (r.getStudyDuration() != null) {
+                current.setStudyTime(current.getStudyTime() + r.getStudyDuration());
+            }
+            if (r.getProgress() != null) {
+                current.setProgressSum(current.getProgressSum() + r.getProgress());
+                current.setProgressCount(current.getProgressCount() + 1);
+                if (r.getProgress() >= 100 && r.getResourceId() != null && completedResources.add(r.getResourceId())) {
+                    StudyRecord done = new StudyRecord();
+                    done.setStudentId(r.getStudentId());
+                    done.setResourceId(r.getResourceId());
+                    completed.add(done);
+                }
+            }
+            if (r.getCreatedTime() != null) {
+                days.add(r.getCreatedTime().toLocalDate());
+            }
+        }
+
+        List<StudyRecordSummary> finish() {
+            close();
+            return summaries;
+        }
+
+        private void close() {
+            if (current != null) {
+                current.setStudyDays(days.size());
+                summaries.add(current);
+                current = null;
+            }
+            days.clear();
+            completedResources.clear();
+        }
+    }
+}
@@ -0,0 +1,214 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.TextCompressionMapper;
+import com.dream.softwarecupspring.pojo.TextDictionary;
+import com.dream.softwarecupspring.service.TextCompressionService;
+import com.dream.softwarecupspring.sharding.ShardScatterGather;
+import com.dream.softwarecupspring.utils.TextCompressor;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 长文本压缩：启动时加载字典，可选地训练字典和迁移存量数据
+ * text-compression.enabled 默认关闭：同一列的所有读写映射（包括教师端）都使用 CompressedTextTypeHandler 之后才能打开，
+ * 关闭时新写入的文本保持原始UTF-8，迁移也会被拒绝；
+ * text-compression.migrate=true 时在启动后执行一次迁移，并输出压缩率和解压吞吐。
+ * 字典训练默认关闭，只应在一个节点上打开；其他节点读到未加载的字典ID时按需从数据库加载
+ */
+@Slf4j
+@Service
+public class TextCompressionServiceImpl implements TextCompressionService, ApplicationRunner {
+
+    private static final int SAMPLE_LIMIT = 2000;
+    private static final int MIN_SAMPLES = 50;
+    private static final int BATCH_SIZE = 500;
+
+    // 用于训练字典的样本列：表名, 列名
+    private static final List<String[]> SAMPLE_COLUMNS = List.of(
+        new String[]{"ai_question", "answer"},
+        new String[]{"student_questions", "content"},
+        new String[]{"student_questions", "answer"});
+
+    // 需要迁移的列；教师端的映射也读写这两列，启用压缩前必须先给它们加上 CompressedTextTypeHandler。
+    // ai_question.answer 要等 AiQuestionMapper 的映射加上该处理器后再加入
+    private static final List<String[]> MIGRATE_COLUMNS = List.of(
+        new String[]{"student_questions", "content"},
+        new String[]{"student_questions", "answer"});
+
+    @Autowired
+    private TextCompressionMapper textCompressionMapper;
+
+    @Autowired
+    private ShardScatterGather shardScatterGather;
+
+    @Value("${text-compression.enabled:false}")
+    private boolean enabled;
+
+    @Value("${text-compression.train-on-startup:false}")
+    private boolean trainOnStartup;
+
+    @Value("${text-compression.migrate:false}")
+    private boolean migrateOnStartup;
+
+    // 字典加载发生在类型处理器里，调用方可能正处于其他分片的事务中，挂起事务单独查询
+    private final TransactionTemplate dictionaryLoadTemplate;
+
+    public TextCompressionServiceImpl(PlatformTransactionManager transactionManager) {
+        this.dictionaryLoadTemplate = new TransactionTemplate(transactionManager);
+        this.dictionaryLoadTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_NOT_SUPPORTED);
+    }
+
+    @PostConstruct
+    public void loadDictionaries() {
+        TextCompressor.setEnabled(enabled);
+        TextCompressor.setDictionaryLoader(id -> dictionaryLoadTemplate.execute(status -> {
+            TextDictionary dictionary = textCompressionMapper.getDictionary(id);
+            return dictionary == null ? null : dictionary.getData();
+        }));
+        int loaded = registerAll();
+        if (loaded == 0 && trainOnStartup) {
+            trainDictionary();
+        }
+    }
+
+    @Override
+    public void run(ApplicationArguments args) {
+        if (migrateOnStartup) {
+            log.info("长文本压缩迁移结果：{}", migrate());
+        }
+    }
+
+    @Override
+    public int trainDictionary() {
+        List<String> samples = new ArrayList<>();
+        for (String[] column : SAMPLE_COLUMNS) {
+            // 样本取自所有分片（每个分片最多 SAMPLE_LIMIT 条），字典才能覆盖全部学生的文本
+            for (byte[] data : shardScatterGather.gatherList(
+                    () -> textCompressionMapper.getSamples(column[0], column[1], SAMPLE_LIMIT), null, 0)) {
+                samples.add(TextCompressor.decompress(data));
+            }
+        }
+        if (samples.size() < MIN_SAMPLES) {
+            log.info("文本样本只有 {} 条，暂不训练压缩字典", samples.size());
+            return 0;
+        }
+        int id = textCompressionMapper.getDictionaries().stream()
+            .mapToInt(TextDictionary::getId)
+            .max()
+            .orElse(0) + 1;
+        byte[] dictionary = TextCompressor.trainDictionary(samples);
+        try {
+            textCompressionMapper.insertDictionary(new TextDictionary(id, dictionary));
+        } catch (DuplicateKeyException e) {
+            // 其他节点同时训练并抢先占用了这个ID，改用数据库中最新的字典
+            log.info("压缩字典 {} 已由其他节点创建，重新加载字典", id);
+            registerAll();
+            return 0;
+        }
+        TextCompressor.registerDictionary(id, dictionary, true);
+        log.info("已训练压缩字典 {}，样本 {} 条，字典 {} 字节", id, samples.size(), dictionary.length);
+        return id;
+    }
+
+    @Override
+    public Map<String, Object> migrate() {
+        if (!enabled) {
+            throw new IllegalStateException("长文本压缩未启用（text-compression.enabled=false），不能迁移存量数据");
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        for (String[] column : MIGRATE_COLUMNS) {
+            // 每个分片并行迁移自己的行，结果相加
+            long[] total = new long[5];
+            for (long[] shard : shardScatterGather.onAllShards(() -> migrateColumn(column[0], column[1]))) {
+                for (int i = 0; i < total.length; i++) {
+                    total[i] += shard[i];
+                }
+            }
+            report.put(column[0] + "." + column[1], describe(total));
+        }
+        return report;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    // 注册数据库中的全部字典，ID最大的作为当前字典；返回字典个数
+    private int registerAll() {
+        List<TextDictionary> dictionaries = textCompressionMapper.getDictionaries();
+        for (int i = 0; i < dictionaries.size(); i++) {
+            TextDictionary dictionary = dictionaries.get(i);
+            TextCompressor.registerDictionary(dictionary.getId(), dictionary.getData(), i == dictionaries.size() - 1);
+        }
+        return dictionaries.size();
+    }
+
+    /**
+     * 迁移当前分片上的一列，返回 {行数, 压缩前字节数, 压缩后字节数, 解压耗时纳秒, 跳过行数}
+     */
+    private long[] migrateColumn(String table, String column) {
+        long rows = 0;
+        long skipped = 0;
+        long bytesBefore = 0;
+        long bytesAfter = 0;
+        long decompressNanos = 0;
+        int afterId = 0;
+
+        List<Map<String, Object>> batch;
+        do {
+            batch = textCompressionMapper.getRawBatch(table, column, afterId, BATCH_SIZE);
+            for (Map<String, Object> row : batch) {
+                Integer id = ((Number) row.get("id")).intValue();
+                byte[] data = (byte[]) row.get("data");
+                afterId = id;
+                // 已经是压缩格式（首字节0x00/0x01）的跳过，迁移可以中断后重跑
+                if (data.length > 0 && (data[0] == 0x00 || data[0] == 0x01)) {
+                    continue;
+                }
+                byte[] compressed = TextCompressor.compress(new String(data, StandardCharsets.UTF_8));
+                // 读出之后应用可能已经写入了新内容（经类型处理器压缩），只在列未变化时写回
+                if (textCompressionMapper.updateRaw(table, column, id, data, compressed) == 0) {
+                    skipped++;
+                    continue;
+                }
+
+                long start = System.nanoTime();
+                TextCompressor.decompress(compressed);
+                decompressNanos += System.nanoTime() - start;
+                rows++;
+                bytesBefore += data.length;
+                bytesAfter += compressed.length;
+            }
+        } while (batch.size() == BATCH_SIZE);
+        return new long[]{rows, bytesBefore, bytesAfter, decompressNanos, skipped};
+    }
+
+    private static Map<String, Object> describe(long[] totals) {
+        long rows = totals[0];
+        long bytesBefore = totals[1];
+        long bytesAfter = totals[2];
+        long decompressNanos = totals[3];
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rows", rows);                                                                   // 迁移行数
+        result.put("skipped", totals[4]);                                                           // 迁移期间被改写而跳过的行数
+        result.put("bytesBefore", bytesBefore);                                                     // 压缩前字节数
+        result.put("bytesAfter", bytesAfter);                                                       // 压缩后字节数
+        result.put("ratio", bytesAfter == 0 ? 0 : Math.round(bytesBefore * 100.0 / bytesAfter) / 100.0); // 压缩比
+        result.put("decompressMBps", decompressNanos == 0 ? 0
+            : Math.round(bytesBefore / 1048576.0 / (decompressNanos / 1e9) * 10) / 10.0);            // 解压吞吐（MB/s）
+        return result;
+    }
+}
@@ -0,0 +1,17 @@
+package com.dream.softwarecupspring.sharding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记只存在于分片0的全局表（摘要、字典等）上的语句，可以放在Mapper接口或方法上
+ * 事务外总是在分片0上执行；事务中只能和分片0上的其他语句在同一个事务里，否则抛出异常
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface GlobalTable {
+}
@@ -0,0 +1,64 @@
+package com.dream.softwarecupspring.sharding;
+
+import java.util.function.Supplier;
+
+/**
+ * 当前线程要访问的分片
+ * 由 ShardRoutingInterceptor 根据语句的 studentId 参数自动设置，或由 runOn 显式指定
+ */
+public final class ShardContext {
+
+    private static final ThreadLocal<Integer> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> PINNED = new ThreadLocal<>();
+
+    private ShardContext() {
+    }
+
+    public static Integer current() {
+        return CURRENT.get();
+    }
+
+    public static boolean isPinned() {
+        return Boolean.TRUE.equals(PINNED.get());
+    }
+
+    static void route(int shard) {
+        CURRENT.set(shard);
+    }
+
+    /**
+     * 恢复为之前的分片（null表示未指定），不影响runOn设置的固定标记
+     */
+    static void reset(Integer previousShard) {
+        restore(CURRENT, previousShard);
+    }
+
+    /**
+     * 在指定分片上执行，期间不再根据参数自动路由
+     */
+    public static <T> T runOn(int shard, Supplier<T> action) {
+        Integer previousShard = CURRENT.get();
+        Boolean previousPinned = PINNED.get();
+        CURRENT.set(shard);
+        PINNED.set(Boolean.TRUE);
+        try {
+            return action.get();
+        } finally {
+            restore(CURRENT, previousShard);
+            restore(PINNED, previousPinned);
+        }
+    }
+
+    public static void clear() {
+        CURRENT.remove();
+        PINNED.remove();
+    }
+
+    private static <T> void restore(ThreadLocal<T> local, T value) {
+        if (value == null) {
+            local.remove();
+        } else {
+            local.set(value);
+        }
+    }
+}
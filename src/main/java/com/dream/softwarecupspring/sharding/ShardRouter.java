@@ -0,0 +1,233 @@
+package com.dream.softwarecupspring.sharding;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * 根据学生ID计算分片
+ * 使用 Jump Consistent Hash：分片数从 N 增加到 N+1 时只有约 1/(N+1) 的学生需要迁移，且都迁往新分片。
+ * 重分片期间逐个学生搬迁：已搬完的学生按新分片数路由，其余仍按旧分片数；
+ * 正在搬迁的学生的写入会等待搬迁完成，写入前后由 ShardRoutingInterceptor 调用 beginWrite/endWrite。
+ * 分片数和迁移状态以分片0上的全局状态为准，由 ShardStateService 定期同步到每个节点；
+ * 同步中断超过有效期、或本节点的分片配置不足以访问全局状态中的分片时，学生数据的写入一律拒绝
+ */
+public class ShardRouter {
+
+    private static final long WRITE_WAIT_MILLIS = 10_000;
+
+    private volatile int shardCount;
+
+    private volatile Migration migration;
+
+    private volatile boolean stateLeased;
+    private volatile long stateDeadline;
+    private volatile String writeBlock;
+
+    // 迁移状态（冻结集合、进行中的写入数）的修改和等待都在这把锁上，用ReentrantLock避免钉住虚拟线程
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+
+    public ShardRouter(int shardCount) {
+        this.shardCount = shardCount;
+    }
+
+    public int shardCount() {
+        return shardCount;
+    }
+
+    /**
+     * 可能存有学生数据的分片数：扩容迁移期间已搬迁的学生已经在新分片上
+     */
+    public int activeShardCount() {
+        Migration m = migration;
+        return m == null ? shardCount : Math.max(shardCount, m.newCount);
+    }
+
+    public int shardFor(Integer studentId) {
+        Migration m = migration;
+        if (m != null && m.moved.contains(studentId)) {
+            return shardFor(studentId, m.newCount);
+        }
+        return shardFor(studentId, shardCount);
+    }
+
+    public static int shardFor(Integer studentId, int shardCount) {
+        long key = studentId;
+        long b = -1;
+        long j = 0;
+        while (j < shardCount) {
+            b = j;
+            key = key * 2862933555777941757L + 1;
+            j = (long) ((b + 1) * ((double) (1L << 31) / (double) ((key >>> 33) + 1)));
+        }
+        return (int) b;
+    }
+
+    // ==================== 重分片 ====================
+
+    /**
+     * 用全局分片状态（由 ShardStateService 从分片0读取）替换本节点的路由状态。
+     * target为null表示没有进行中的重分片；迁移目标不变时保留本节点进行中的写入计数
+     */
+    public void applyState(int shardCount, Integer target, Set<Integer> moved, Set<Integer> frozen, boolean freezeUnmoved) {
+        lock.lock();
+        try {
+            this.shardCount = shardCount;
+            if (target == null) {
+                migration = null;
+            } else {
+                Migration m = migration;
+                if (m == null || m.newCount != target) {
+                    m = new Migration(target);
+                }
+                m.moved.addAll(moved);
+                m.moved.retainAll(moved);
+                m.frozen.addAll(frozen);
+                m.frozen.retainAll(frozen);
+                m.freezeUnmoved = freezeUnmoved;
+                migration = m;
+            }
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 等待本节点上冻结学生的写入事务结束，超时返回false
+     */
+    public boolean awaitFrozenWrites(long timeoutMillis) throws InterruptedException {
+        lock.lock();
+        try {
+            Migration m = migration;
+            return m == null || awaitWrites(m, studentId -> isFrozen(m, studentId), timeoutMillis);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 未完成的重分片的目标分片数，没有时返回null
+     */
+    public Integer migrationTarget() {
+        Migration m = migration;
+        return m == null ? null : m.newCount;
+    }
+
+    public boolean isMoved(Integer studentId) {
+        Migration m = migration;
+        return m != null && m.moved.contains(studentId);
+    }
+
+    // ==================== 状态有效期 ====================
+
+    /**
+     * 全局分片状态同步成功后调用：在 validMillis 内没有再次同步时拒绝写入
+     */
+    public void renewState(long validMillis) {
+        stateDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(validMillis);
+        stateLeased = true;
+    }
+
+    /**
+     * 本节点配置与全局分片状态不一致时拒绝写入，reason为null时恢复
+     */
+    public void blockWrites(String reason) {
+        writeBlock = reason;
+    }
+
+    // ==================== 写入跟踪 ====================
+
+    /**
+     * 写入学生数据前调用；学生正在搬迁时等待，超时抛出异常。返回true时写入结束后必须调用endWrite
+     */
+    public boolean beginWrite(Integer studentId) {
+        checkWritable();
+        Migration m = migration;
+        if (m == null) {
+            return false;
+        }
+        lock.lock();
+        try {
+            long remaining = TimeUnit.MILLISECONDS.toNanos(WRITE_WAIT_MILLIS);
+            while (migration == m && isFrozen(m, studentId)) {
+                if (remaining <= 0) {
+                    throw new IllegalStateException("学生数据正在迁移，请稍后重试：" + studentId);
+                }
+                remaining = changed.awaitNanos(remaining);
+            }
+            if (migration != m) {
+                // 等待期间迁移已经结束，不再需要计数
+                return false;
+            }
+            m.inFlight.merge(studentId, 1, Integer::sum);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("等待学生数据迁移时被中断", e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void endWrite(Integer studentId) {
+        lock.lock();
+        try {
+            Migration m = migration;
+            if (m != null) {
+                m.inFlight.computeIfPresent(studentId, (id, count) -> count > 1 ? count - 1 : null);
+                changed.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void checkWritable() {
+        String reason = writeBlock;
+        if (reason != null) {
+            throw new IllegalStateException(reason);
+        }
+        if (stateLeased && System.nanoTime() - stateDeadline > 0) {
+            throw new IllegalStateException("分片状态未能及时同步，暂停写入学生数据");
+        }
+    }
+
+    private boolean isFrozen(Migration m, Integer studentId) {
+        return m.frozen.contains(studentId)
+            || m.freezeUnmoved && !m.moved.contains(studentId)
+                && shardFor(studentId, shardCount) != shardFor(studentId, m.newCount);
+    }
+
+    // 调用方持有锁
+    private boolean awaitWrites(Migration m, Predicate<Integer> students, long timeoutMillis) throws InterruptedException {
+        long remaining = TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (m.inFlight.keySet().stream().anyMatch(students)) {
+            if (remaining <= 0) {
+                return false;
+            }
+            remaining = changed.awaitNanos(remaining);
+        }
+        return true;
+    }
+
+    private static class Migration {
+
+        private final int newCount;
+        private final Set<Integer> moved = ConcurrentHashMap.newKeySet();
+        private final Set<Integer> frozen = ConcurrentHashMap.newKeySet();
+        private final Map<Integer, Integer> inFlight = new ConcurrentHashMap<>();
+        private volatile boolean freezeUnmoved;
+
+        Migration(int newCount) {
+            this.newCount = newCount;
+        }
+    }
+}
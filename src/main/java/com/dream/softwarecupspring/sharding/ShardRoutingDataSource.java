@@ -0,0 +1,36 @@
+package com.dream.softwarecupspring.sharding;
+
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+
+import javax.sql.DataSource;
+import java.util.function.IntConsumer;
+
+/**
+ * 按 ShardContext 选择分片数据源；未指定分片时使用默认数据源（分片0，存放教师、资源等全局表）
+ */
+public class ShardRoutingDataSource extends AbstractRoutingDataSource {
+
+    private volatile IntConsumer connectionListener;
+
+    /**
+     * 每次从某个分片取连接之前回调，参数为分片序号（如按分片限流）
+     */
+    public void setConnectionListener(IntConsumer connectionListener) {
+        this.connectionListener = connectionListener;
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        return ShardContext.current();
+    }
+
+    @Override
+    protected DataSource determineTargetDataSource() {
+        IntConsumer listener = connectionListener;
+        if (listener != null) {
+            Integer shard = ShardContext.current();
+            listener.accept(shard == null ? 0 : shard);
+        }
+        return super.determineTargetDataSource();
+    }
+}
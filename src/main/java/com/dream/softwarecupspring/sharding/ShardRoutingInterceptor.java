@@ -0,0 +1,192 @@
+package com.dream.softwarecupspring.sharding;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.plugin.Intercepts;
+import org.apache.ibatis.plugin.Invocation;
+import org.apache.ibatis.plugin.Signature;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在语句执行前根据 studentId 参数设置分片
+ * 数据源外层包了 LazyConnectionDataSourceProxy，事务中第一条语句执行时才真正取连接，因此路由在这里决定；
+ * 同一事务中的语句必须落在同一分片上，跨分片的读取用 ShardScatterGather 在事务外执行。
+ * 标了 @GlobalTable 的语句总是访问分片0。
+ * 带 studentId 的写语句在重分片期间向 ShardRouter 登记（事务中登记到事务结束），学生正在搬迁时会等待
+ */
+@Intercepts({
+    @Signature(type = Executor.class, method = "update", args = {MappedStatement.class, Object.class}),
+    @Signature(type = Executor.class, method = "query",
+        args = {MappedStatement.class, Object.class, RowBounds.class, ResultHandler.class})
+})
+public class ShardRoutingInterceptor implements Interceptor {
+
+    private static final String STUDENT_ID = "studentId";
+    private static final int GLOBAL_SHARD = 0;
+
+    private final ShardRouter router;
+
+    // 当前事务中已登记写入的学生，作为事务资源的key
+    private final Object writesKey = new Object();
+
+    // 语句ID -> 语句在Mapper上的声明信息（单参数时MyBatis直接传值，需要看方法签名）
+    private final Map<String, StatementInfo> statements = new ConcurrentHashMap<>();
+
+    public ShardRoutingInterceptor(ShardRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+        MappedStatement statement = (MappedStatement) invocation.getArgs()[0];
+        StatementInfo info = statements.computeIfAbsent(statement.getId(), ShardRoutingInterceptor::inspect);
+        boolean inTransaction = TransactionSynchronizationManager.isActualTransactionActive();
+        Integer bound = ShardContext.current();
+
+        if (info.global()) {
+            if (!inTransaction) {
+                return proceedOn(GLOBAL_SHARD, invocation);
+            }
+            if (bound == null) {
+                bindTransaction(GLOBAL_SHARD);
+            } else if (bound != GLOBAL_SHARD) {
+                throw new IllegalStateException("全局表只在分片0上，不能和分片 " + bound + " 的语句在同一事务中："
+                    + statement.getId());
+            }
+            return invocation.proceed();
+        }
+        if (ShardContext.isPinned()) {
+            return invocation.proceed();
+        }
+        Integer studentId = studentId(info, invocation.getArgs()[1]);
+        boolean write = studentId != null && "update".equals(invocation.getMethod().getName());
+
+        if (inTransaction) {
+            if (write) {
+                // 先登记再计算分片：等待搬迁结束后该学生可能已经换了分片
+                trackTransactionWrite(studentId);
+            }
+            // 事务中第一条语句决定连接所在分片，没有studentId的语句访问全局表所在的分片0
+            int shard = studentId != null ? router.shardFor(studentId) : (bound != null ? bound : GLOBAL_SHARD);
+            if (bound == null) {
+                bindTransaction(shard);
+            } else if (bound != shard) {
+                throw new IllegalStateException("同一事务中不能访问多个分片：" + statement.getId());
+            }
+            return invocation.proceed();
+        }
+
+        // 事务外每条语句单独取连接，分别路由
+        if (studentId == null) {
+            return invocation.proceed();
+        }
+        boolean tracked = write && router.beginWrite(studentId);
+        try {
+            return proceedOn(router.shardFor(studentId), invocation);
+        } finally {
+            if (tracked) {
+                router.endWrite(studentId);
+            }
+        }
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    @SuppressWarnings("unchecked")
+    private void trackTransactionWrite(Integer studentId) {
+        Set<Integer> students = (Set<Integer>) TransactionSynchronizationManager.getResource(writesKey);
+        if (students == null) {
+            Set<Integer> registered = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(writesKey, registered);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(writesKey);
+                    registered.forEach(router::endWrite);
+                }
+            });
+            students = registered;
+        }
+        if (!students.contains(studentId) && router.beginWrite(studentId)) {
+            students.add(studentId);
+        }
+    }
+
+    private static void bindTransaction(int shard) {
+        ShardContext.route(shard);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                ShardContext.clear();
+            }
+        });
+    }
+
+    // 执行完恢复调用方原来的分片，afterCommit 回调等场景中外层事务绑定的分片不会被清掉
+    private static Object proceedOn(int shard, Invocation invocation) throws Throwable {
+        Integer previous = ShardContext.current();
+        ShardContext.route(shard);
+        try {
+            return invocation.proceed();
+        } finally {
+            ShardContext.reset(previous);
+        }
+    }
+
+    private static Integer studentId(StatementInfo info, Object parameter) {
+        if (parameter == null) {
+            return null;
+        }
+        if (parameter instanceof Integer value) {
+            return info.scalarStudentId() ? value : null;
+        }
+        if (parameter instanceof Map<?, ?> map) {
+            Object value = map.containsKey(STUDENT_ID) ? map.get(STUDENT_ID) : null;
+            return value instanceof Integer id ? id : null;
+        }
+        MetaObject meta = SystemMetaObject.forObject(parameter);
+        if (meta.hasGetter(STUDENT_ID) && meta.getValue(STUDENT_ID) instanceof Integer id) {
+            return id;
+        }
+        return null;
+    }
+
+    private static StatementInfo inspect(String statementId) {
+        // selectKey 等附属语句的ID形如 namespace.method!selectKey
+        String id = statementId.contains("!") ? statementId.substring(0, statementId.indexOf('!')) : statementId;
+        int dot = id.lastIndexOf('.');
+        try {
+            Class<?> mapper = Class.forName(id.substring(0, dot));
+            boolean global = mapper.isAnnotationPresent(GlobalTable.class);
+            for (Method method : mapper.getMethods()) {
+                if (method.getName().equals(id.substring(dot + 1))) {
+                    boolean scalar = false;
+                    if (method.getParameterCount() == 1) {
+                        Parameter parameter = method.getParameters()[0];
+                        scalar = parameter.isNamePresent() && STUDENT_ID.equals(parameter.getName());
+                    }
+                    return new StatementInfo(global || method.isAnnotationPresent(GlobalTable.class), scalar);
+                }
+            }
+            return new StatementInfo(global, false);
+        } catch (ClassNotFoundException e) {
+            return new StatementInfo(false, false);
+        }
+    }
+
+    private record StatementInfo(boolean global, boolean scalarStudentId) {
+    }
+}
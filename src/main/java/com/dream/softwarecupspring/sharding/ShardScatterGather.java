@@ -0,0 +1,145 @@
+package com.dream.softwarecupspring.sharding;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * 跨学生的查询（教师端、管理端）在所有分片上并行执行后合并
+ * 每个分片在独立线程上执行，不受调用方事务绑定的连接影响；未启用分片时直接在当前线程执行一次
+ */
+@Component
+public class ShardScatterGather {
+
+    private final ShardRouter router;
+
+    private final ExecutorService executor;
+
+    public ShardScatterGather(ObjectProvider<ShardRouter> router) {
+        this.router = router.getIfAvailable();
+        this.executor = this.router == null ? null : Executors.newCachedThreadPool();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 学生数据所在的分片，未启用分片时为0
+     */
+    public int shardOf(Integer studentId) {
+        return router == null ? 0 : router.shardFor(studentId);
+    }
+
+    /**
+     * 固定在某个分片上执行（可以包含事务），未启用分片时直接执行
+     */
+    public <T> T onShard(int shard, Supplier<T> action) {
+        return router == null ? action.get() : ShardContext.runOn(shard, action);
+    }
+
+    /**
+     * 在每个分片上执行查询，按分片顺序返回各自的结果
+     */
+    public <T> List<T> onAllShards(Supplier<T> query) {
+        if (router == null) {
+            return Collections.singletonList(query.get());
+        }
+        List<CompletableFuture<T>> futures = new ArrayList<>();
+        for (int shard = 0; shard < router.activeShardCount(); shard++) {
+            int target = shard;
+            futures.add(CompletableFuture.supplyAsync(() -> ShardContext.runOn(target, query), executor));
+        }
+        return futures.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * 合并各分片的列表结果；comparator不为null时整体排序，limit大于0时截取前limit条
+     */
+    public <T> List<T> gatherList(Supplier<List<T>> query, Comparator<? super T> comparator, int limit) {
+        List<T> merged = new ArrayList<>();
+        for (List<T> part : onAllShards(query)) {
+            merged.addAll(part);
+        }
+        if (comparator != null) {
+            merged.sort(comparator);
+        }
+        return limit > 0 && merged.size() > limit ? new ArrayList<>(merged.subList(0, limit)) : merged;
+    }
+
+    /**
+     * 合并各分片上属于学生的行：每个学生只采用他当前所在分片上的行，重分片期间尚未删除的旧副本被忽略；
+     * 当前分片上没有他的行时退回第一个有他的行的分片
+     */
+    public <T> List<T> gatherOwned(Supplier<List<T>> query, Function<? super T, Integer> studentIdOf) {
+        List<List<T>> parts = onAllShards(query);
+        if (router == null) {
+            return new ArrayList<>(parts.get(0));
+        }
+        Map<Integer, Integer> sourceShard = new HashMap<>();
+        for (int shard = 0; shard < parts.size(); shard++) {
+            for (T row : parts.get(shard)) {
+                Integer studentId = studentIdOf.apply(row);
+                if (shardOf(studentId) == shard) {
+                    sourceShard.put(studentId, shard);
+                } else {
+                    sourceShard.putIfAbsent(studentId, shard);
+                }
+            }
+        }
+        List<T> merged = new ArrayList<>();
+        for (int shard = 0; shard < parts.size(); shard++) {
+            for (T row : parts.get(shard)) {
+                if (sourceShard.get(studentIdOf.apply(row)) == shard) {
+                    merged.add(row);
+                }
+            }
+        }
+        return merged;
+    }
+
+    /**
+     * 按主键等不含学生ID的条件查找单条记录，返回第一个非null结果
+     */
+    public <T> T findFirst(Supplier<T> query) {
+        return onAllShards(query).stream().filter(Objects::nonNull).findFirst().orElse(null);
+    }
+
+    /**
+     * 按ID查找属于某个学生的记录：只采用学生当前所在分片上的结果，
+     * 重分片期间尚未删除的旧副本被忽略；没有这样的结果时退回第一个非null结果
+     */
+    public <T> T findOwned(Supplier<T> query, Function<? super T, Integer> studentIdOf) {
+        List<T> results = onAllShards(query);
+        for (int shard = 0; shard < results.size(); shard++) {
+            T result = results.get(shard);
+            if (result != null && (router == null || shardOf(studentIdOf.apply(result)) == shard)) {
+                return result;
+            }
+        }
+        return results.stream().filter(Objects::nonNull).findFirst().orElse(null);
+    }
+
+    /**
+     * 合并各分片的计数
+     */
+    public long sum(Supplier<? extends Number> query) {
+        return onAllShards(query).stream().filter(Objects::nonNull).mapToLong(Number::longValue).sum();
+    }
+}
@@ -0,0 +1,31 @@
+package com.dream.softwarecupspring.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "sharding")
+public class ShardingProperties {
+
+    private boolean enabled;
+
+    // 当前生效的分片数，可以小于 shards 的个数（多出来的是重分片的目标库）
+    private Integer shardCount;
+
+    // 自增ID步长：分片i生成的ID满足 id % idStride == i+1，各分片的ID互不重复，重分片时可以原样搬迁；
+    // 也是分片数的上限，上线后不能再改
+    private int idStride = 16;
+
+    private List<Shard> shards = new ArrayList<>();
+
+    @Data
+    public static class Shard {
+        private String url;
+        private String username;
+        private String password;
+        private Integer maximumPoolSize = 10;
+    }
+}
@@ -0,0 +1,81 @@
+package com.dream.softwarecupspring.utils;
+
+import java.util.Arrays;
+
+/**
+ * HyperLogLog 基数估计（精度参数p=14，16384个寄存器，标准误差约0.8%）
+ * 可合并：多天的摘要逐寄存器取最大值即为并集的摘要
+ */
+public class HyperLogLog {
+
+    private static final int P = 14;
+    private static final int M = 1 << P;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / M);
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[M];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public synchronized void add(long value) {
+        long hash = mix(value);
+        int index = (int) (hash >>> (64 - P));
+        // 剩余位中前导0的个数+1；加一个哨兵位保证结果不超过 64-P+1
+        int rank = Long.numberOfLeadingZeros((hash << P) | (1L << (P - 1))) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public synchronized void merge(HyperLogLog other) {
+        byte[] theirs = other.toBytes();
+        for (int i = 0; i < M; i++) {
+            if (theirs[i] > registers[i]) {
+                registers[i] = theirs[i];
+            }
+        }
+    }
+
+    public synchronized long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte r : registers) {
+            sum += 1.0 / (1L << r);
+            if (r == 0) {
+                zeros++;
+            }
+        }
+        double estimate = ALPHA * M * M / sum;
+        // 小基数时改用线性计数，误差更小
+        if (estimate <= 2.5 * M && zeros > 0) {
+            estimate = M * Math.log((double) M / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public synchronized byte[] toBytes() {
+        return Arrays.copyOf(registers, M);
+    }
+
+    public static HyperLogLog fromBytes(byte[] data) {
+        if (data == null || data.length != M) {
+            throw new IllegalArgumentException("HyperLogLog数据长度不正确");
+        }
+        return new HyperLogLog(Arrays.copyOf(data, M));
+    }
+
+    // MurmurHash3 的64位收尾函数，把连续的ID打散到整个哈希空间
+    private static long mix(long k) {
+        k ^= k >>> 33;
+        k *= 0xff51afd7ed558ccdL;
+        k ^= k >>> 33;
+        k *= 0xc4ceb9fe1a85ec53L;
+        k ^= k >>> 33;
+        return k;
+    }
+}
@@ -0,0 +1,49 @@
+package com.dream.softwarecupspring.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 把业务ID映射为从0开始的连续下标，便于用数组存储
+ * 非线程安全，由调用方加锁
+ */
+public class IdInterner<K> {
+
+    private final Map<K, Integer> indexes = new HashMap<>();
+    private final List<K> keys = new ArrayList<>();
+
+    /**
+     * 返回已有下标，不存在时分配新下标
+     */
+    public int intern(K key) {
+        Integer index = indexes.get(key);
+        if (index == null) {
+            index = keys.size();
+            indexes.put(key, index);
+            keys.add(key);
+        }
+        return index;
+    }
+
+    /**
+     * 返回下标，不存在时返回-1
+     */
+    public int indexOf(K key) {
+        Integer index = indexes.get(key);
+        return index == null ? -1 : index;
+    }
+
+    public K keyAt(int index) {
+        return keys.get(index);
+    }
+
+    public int size() {
+        return keys.size();
+    }
+
+    public List<K> keys() {
+        return keys;
+    }
+}
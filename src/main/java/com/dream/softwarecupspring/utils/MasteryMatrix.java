@@ -0,0 +1,251 @@
+package com.dream.softwarecupspring.utils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 学生 × 知识点 掌握度矩阵
+ * 每个单元格保存得分和满分两个float，按行（学生）连续存放在一维数组中，
+ * 查询都是对原始数组的顺序扫描，不产生装箱对象
+ */
+public class MasteryMatrix {
+
+    private static final int SNAPSHOT_MAGIC = 0x4D41_5354;  // "MAST"
+    private static final int SNAPSHOT_VERSION = 1;
+
+    private final IdInterner<Integer> students = new IdInterner<>();
+    private final IdInterner<String> knowledgePoints = new IdInterner<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int rowCapacity = 64;
+    private int colCapacity = 16;
+    private float[] earned = new float[rowCapacity * colCapacity];
+    private float[] possible = new float[rowCapacity * colCapacity];
+
+    /**
+     * 累加一次作答结果
+     */
+    public void add(Integer studentId, String knowledge, float score, float fullScore) {
+        lock.writeLock().lock();
+        try {
+            int row = students.intern(studentId);
+            int col = knowledgePoints.intern(knowledge);
+            ensureCapacity(row + 1, col + 1);
+            int cell = row * colCapacity + col;
+            earned[cell] += score;
+            possible[cell] += fullScore;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * 每个知识点在所有作答学生中的平均掌握度（0~100），取前k个
+     */
+    public List<Ranked<String>> topKnowledge(int k, boolean ascending) {
+        lock.readLock().lock();
+        try {
+            int cols = knowledgePoints.size();
+            float[] rateSum = new float[cols];
+            int[] answered = new int[cols];
+            for (int row = 0, rows = students.size(); row < rows; row++) {
+                int base = row * colCapacity;
+                for (int col = 0; col < cols; col++) {
+                    float p = possible[base + col];
+                    if (p > 0) {
+                        rateSum[col] += earned[base + col] / p;
+                        answered[col]++;
+                    }
+                }
+            }
+            float[] values = new float[cols];
+            for (int col = 0; col < cols; col++) {
+                values[col] = answered[col] == 0 ? Float.NaN : rateSum[col] * 100 / answered[col];
+            }
+            return select(values, k, ascending, knowledgePoints);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 某个学生掌握度最低的k个知识点
+     */
+    public List<Ranked<String>> weakestKnowledge(Integer studentId, int k) {
+        lock.readLock().lock();
+        try {
+            int row = students.indexOf(studentId);
+            int cols = knowledgePoints.size();
+            float[] values = new float[cols];
+            Arrays.fill(values, Float.NaN);
+            if (row >= 0) {
+                int base = row * colCapacity;
+                for (int col = 0; col < cols; col++) {
+                    float p = possible[base + col];
+                    if (p > 0) {
+                        values[col] = earned[base + col] * 100 / p;
+                    }
+                }
+            }
+            return select(values, k, true, knowledgePoints);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 掌握度分布：按 bucketWidth 分段统计学生-知识点单元格个数，knowledge为null时统计全部知识点
+     */
+    public int[] distribution(String knowledge, int bucketWidth) {
+        lock.readLock().lock();
+        try {
+            int[] buckets = new int[100 / bucketWidth + 1];
+            int cols = knowledgePoints.size();
+            int only = knowledge == null ? -1 : knowledgePoints.indexOf(knowledge);
+            if (knowledge != null && only < 0) {
+                return buckets;
+            }
+            for (int row = 0, rows = students.size(); row < rows; row++) {
+                int base = row * colCapacity;
+                for (int col = only < 0 ? 0 : only; col < (only < 0 ? cols : only + 1); col++) {
+                    float p = possible[base + col];
+                    if (p > 0) {
+                        int rate = (int) (earned[base + col] * 100 / p);
+                        buckets[Math.min(Math.max(rate, 0), 100) / bucketWidth]++;
+                    }
+                }
+            }
+            return buckets;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ==================== 快照 ====================
+
+    /**
+     * 写入内存映射文件，先写临时文件再原子替换
+     */
+    public void snapshot(Path file) throws IOException {
+        lock.readLock().lock();
+        try {
+            int rows = students.size();
+            int cols = knowledgePoints.size();
+            List<byte[]> names = new ArrayList<>(cols);
+            long size = 4L * 4 + 4L * rows + 8L * rows * cols;
+            for (String k : knowledgePoints.keys()) {
+                byte[] bytes = k.getBytes(StandardCharsets.UTF_8);
+                names.add(bytes);
+                size += 4 + bytes.length;
+            }
+
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (RandomAccessFile raf = new RandomAccessFile(tmp.toFile(), "rw");
+                 FileChannel channel = raf.getChannel()) {
+                raf.setLength(size);
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+                out.putInt(SNAPSHOT_MAGIC).putInt(SNAPSHOT_VERSION).putInt(rows).putInt(cols);
+                for (int row = 0; row < rows; row++) {
+                    out.putInt(students.keyAt(row));
+                }
+                for (byte[] name : names) {
+                    out.putInt(name.length).put(name);
+                }
+                for (int row = 0; row < rows; row++) {
+                    int base = row * colCapacity;
+                    out.asFloatBuffer().put(earned, base, cols);
+                    out.position(out.position() + 4 * cols);
+                    out.asFloatBuffer().put(possible, base, cols);
+                    out.position(out.position() + 4 * cols);
+                }
+                out.force();
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 从快照文件恢复，文件格式不匹配时抛出IOException
+     */
+    public static MasteryMatrix restore(Path file) throws IOException {
+        MasteryMatrix matrix = new MasteryMatrix();
+        try (FileChannel channel = FileChannel.open(file)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (in.getInt() != SNAPSHOT_MAGIC || in.getInt() != SNAPSHOT_VERSION) {
+                throw new IOException("掌握度快照格式不正确：" + file);
+            }
+            int rows = in.getInt();
+            int cols = in.getInt();
+            for (int row = 0; row < rows; row++) {
+                matrix.students.intern(in.getInt());
+            }
+            for (int col = 0; col < cols; col++) {
+                byte[] name = new byte[in.getInt()];
+                in.get(name);
+                matrix.knowledgePoints.intern(new String(name, StandardCharsets.UTF_8));
+            }
+            matrix.ensureCapacity(rows, cols);
+            for (int row = 0; row < rows; row++) {
+                int base = row * matrix.colCapacity;
+                in.asFloatBuffer().get(matrix.earned, base, cols);
+                in.position(in.position() + 4 * cols);
+                in.asFloatBuffer().get(matrix.possible, base, cols);
+                in.position(in.position() + 4 * cols);
+            }
+        }
+        return matrix;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void ensureCapacity(int rows, int cols) {
+        if (rows <= rowCapacity && cols <= colCapacity) {
+            return;
+        }
+        int newRows = rowCapacity;
+        while (newRows < rows) {
+            newRows *= 2;
+        }
+        int newCols = colCapacity;
+        while (newCols < cols) {
+            newCols *= 2;
+        }
+        float[] newEarned = new float[newRows * newCols];
+        float[] newPossible = new float[newRows * newCols];
+        for (int row = 0, used = students.size(); row < Math.min(used, rowCapacity); row++) {
+            System.arraycopy(earned, row * colCapacity, newEarned, row * newCols, colCapacity);
+            System.arraycopy(possible, row * colCapacity, newPossible, row * newCols, colCapacity);
+        }
+        rowCapacity = newRows;
+        colCapacity = newCols;
+        earned = newEarned;
+        possible = newPossible;
+    }
+
+    private static <K> List<Ranked<K>> select(float[] values, int k, boolean ascending, IdInterner<K> ids) {
+        List<Ranked<K>> ranked = new ArrayList<>();
+        for (int i = 0; i < values.length; i++) {
+            if (!Float.isNaN(values[i])) {
+                ranked.add(new Ranked<>(ids.keyAt(i), values[i]));
+            }
+        }
+        ranked.sort((a, b) -> ascending ? Float.compare(a.value(), b.value()) : Float.compare(b.value(), a.value()));
+        return ranked.size() > k ? new ArrayList<>(ranked.subList(0, k)) : ranked;
+    }
+
+    public record Ranked<K>(K key, float value) {
+    }
+}
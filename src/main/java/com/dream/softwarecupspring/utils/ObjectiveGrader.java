@@ -0,0 +1,150 @@
+package com.dream.softwarecupspring.utils;
+
+import com.dream.softwarecupspring.pojo.AnswerKey;
+import com.dream.softwarecupspring.pojo.StudentAnswer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 客观题判分规则（无状态，可在多个线程中同时使用）
+ * 单选、多选、判断、填空题自动判分；简答题和编程题返回null，留给教师批改
+ */
+public final class ObjectiveGrader {
+
+    private static final Set<String> TRUE_WORDS = Set.of("对", "正确", "是", "T", "TRUE", "Y", "YES", "√", "✓");
+    private static final Set<String> FALSE_WORDS = Set.of("错", "错误", "否", "F", "FALSE", "N", "NO", "×", "✗");
+
+    private ObjectiveGrader() {
+    }
+
+    public static boolean isObjective(String type) {
+        return type != null && switch (type) {
+            case "choice", "single", "multiple", "judge", "truefalse", "fill" -> true;
+            default -> false;
+        };
+    }
+
+    /**
+     * 计算单题得分，非客观题或缺少标准答案时返回null
+     */
+    public static Integer grade(AnswerKey key, String answer) {
+        if (!isObjective(key.getType()) || key.getAnswer() == null) {
+            return null;
+        }
+        int full = key.getScore() == null ? 0 : key.getScore();
+        if (answer == null || answer.isBlank()) {
+            return 0;
+        }
+        return switch (key.getType()) {
+            case "choice", "single", "multiple" -> gradeChoice(key.getAnswer(), answer, full);
+            case "judge", "truefalse" -> gradeJudge(key.getAnswer(), answer, full);
+            default -> gradeFill(key.getAnswer(), answer, full);
+        };
+    }
+
+    /**
+     * 批改一份提交：客观题逐题判分；主观题沿用已有分数（教师已批改过），没有分数时整份标记为待批改
+     * scored 为本次判分的客观题答案（score已填入），total 为已有分数的题目合计
+     */
+    public static SubmissionResult gradeSubmission(Map<Integer, AnswerKey> keys, List<StudentAnswer> submission) {
+        Map<Integer, StudentAnswer> byQuestion = submission.stream()
+            .collect(Collectors.toMap(StudentAnswer::getQuestionId, Function.identity(), (a, b) -> b));
+        List<StudentAnswer> scored = new ArrayList<>();
+        int total = 0;
+        boolean pending = false;
+
+        for (AnswerKey key : keys.values()) {
+            StudentAnswer answer = byQuestion.get(key.getQuestionId());
+            if (isObjective(key.getType())) {
+                if (answer != null) {
+                    Integer score = grade(key, answer.getAnswer());
+                    answer.setScore(score);
+                    scored.add(answer);
+                    total += score == null ? 0 : score;
+                }
+            } else if (answer != null && answer.getScore() != null) {
+                total += answer.getScore();
+            } else {
+                pending = true;
+            }
+        }
+        return new SubmissionResult(scored, total, pending);
+    }
+
+    public record SubmissionResult(List<StudentAnswer> scored, int total, boolean pending) {
+    }
+
+    // 多选题：完全正确得满分，少选且无错选得一半分，有错选不得分
+    private static int gradeChoice(String expected, String actual, int full) {
+        Set<Character> keyOptions = options(expected);
+        Set<Character> chosen = options(actual);
+        if (chosen.equals(keyOptions)) {
+            return full;
+        }
+        if (keyOptions.size() > 1 && !chosen.isEmpty() && keyOptions.containsAll(chosen)) {
+            return full / 2;
+        }
+        return 0;
+    }
+
+    private static Set<Character> options(String text) {
+        Set<Character> result = new TreeSet<>();
+        for (char c : toHalfWidth(text).toUpperCase().toCharArray()) {
+            if (c >= 'A' && c <= 'Z') {
+                result.add(c);
+            }
+        }
+        return result;
+    }
+
+    private static int gradeJudge(String expected, String actual, int full) {
+        Boolean keyValue = judgeValue(expected);
+        return keyValue != null && keyValue.equals(judgeValue(actual)) ? full : 0;
+    }
+
+    private static Boolean judgeValue(String text) {
+        String normalized = toHalfWidth(text).trim().toUpperCase();
+        if (TRUE_WORDS.contains(normalized)) {
+            return Boolean.TRUE;
+        }
+        if (FALSE_WORDS.contains(normalized)) {
+            return Boolean.FALSE;
+        }
+        return null;
+    }
+
+    // 填空题：标准答案中可用 | 分隔多个可接受的写法
+    private static int gradeFill(String expected, String actual, int full) {
+        String normalized = normalizeText(actual);
+        for (String candidate : expected.split("\\|")) {
+            if (normalizeText(candidate).equals(normalized)) {
+                return full;
+            }
+        }
+        return 0;
+    }
+
+    private static String normalizeText(String text) {
+        return toHalfWidth(text).trim().replaceAll("\\s+", " ").toLowerCase();
+    }
+
+    private static String toHalfWidth(String text) {
+        StringBuilder sb = new StringBuilder(text.length());
+        for (char c : text.toCharArray()) {
+            if (c == '　') {
+                sb.append(' ');
+            } else if (c >= '！' && c <= '～') {
+                sb.append((char) (c - 0xFEE0));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
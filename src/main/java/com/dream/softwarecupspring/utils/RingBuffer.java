@@ -0,0 +1,69 @@
+package com.dream.softwarecupspring.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Predicate;
+
+/**
+ * 固定容量的环形缓冲区，写满后覆盖最旧的元素
+ */
+public class RingBuffer<T> {
+
+    private final Object[] items;
+    private int next;   // 下一个写入位置
+    private int size;
+
+    public RingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("容量必须大于0");
+        }
+        this.items = new Object[capacity];
+    }
+
+    public synchronized void add(T item) {
+        items[next] = item;
+        next = (next + 1) % items.length;
+        if (size < items.length) {
+            size++;
+        }
+    }
+
+    /**
+     * 写入item；缓冲区中有满足sameAs的元素时先移除其中最新的一个（用于合并同类事件）
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized void addReplacing(T item, Predicate<? super T> sameAs) {
+        for (int i = 1; i <= size; i++) {
+            int index = (next - i + items.length) % items.length;
+            if (sameAs.test((T) items[index])) {
+                // 比它新的元素依次后移一格，补上空位
+                for (int j = i - 1; j >= 1; j--) {
+                    int from = (next - j + items.length) % items.length;
+                    items[(from - 1 + items.length) % items.length] = items[from];
+                }
+                next = (next - 1 + items.length) % items.length;
+                items[next] = null;
+                size--;
+                break;
+            }
+        }
+        add(item);
+    }
+
+    /**
+     * 按从新到旧的顺序返回最多limit个元素
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized List<T> latest(int limit) {
+        int count = Math.min(Math.max(limit, 0), size);
+        List<T> result = new ArrayList<>(count);
+        for (int i = 1; i <= count; i++) {
+            result.add((T) items[(next - i + items.length) % items.length]);
+        }
+        return result;
+    }
+
+    public int capacity() {
+        return items.length;
+    }
+}
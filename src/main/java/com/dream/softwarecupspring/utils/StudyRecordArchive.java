@@ -0,0 +1,359 @@
+package com.dream.softwarecupspring.utils;
+
+import com.dream.softwarecupspring.pojo.StudyRecord;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 学习记录归档文件（按学生分块 + 块内按列存储 + GZIP压缩）
+ * 文件头之后是不压缩的学生索引：每个块的学生ID、行数和在数据区中的位置；
+ * 每个块是一个学生按创建时间排序的行，逐列写出后单独压缩。读取某个学生时只解压他自己的块，
+ * 只统计行数时只读索引。写入时已完成的块落到临时文件，内存中只保留当前学生的行
+ */
+public final class StudyRecordArchive {
+
+    private static final int MAGIC = 0x5352_4332;  // "SRC2"
+    private static final int HEADER_BYTES = 12;
+    private static final int INDEX_ENTRY_BYTES = 16;
+    private static final int NULL_INT = Integer.MIN_VALUE;
+    private static final long NULL_TIME = Long.MIN_VALUE;
+    private static final int BUFFER_BYTES = 64 * 1024;
+    private static final Comparator<StudyRecord> BY_CREATED =
+        Comparator.comparing(StudyRecord::getCreatedTime, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private StudyRecordArchive() {
+    }
+
+    /**
+     * 索引中的一个块：学生ID（可能为null）、行数，以及在数据区中的偏移和长度
+     */
+    public record Block(Integer studentId, int rows, long offset, int length) {
+    }
+
+    /**
+     * 写出归档文件，先写临时文件再原子替换
+     */
+    public static void write(Path file, List<StudyRecord> records) throws IOException {
+        List<StudyRecord> rows = new ArrayList<>(records);
+        rows.sort(Comparator.comparing(StudyRecord::getStudentId, Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(BY_CREATED));
+        try (Writer writer = new Writer(file)) {
+            for (StudyRecord r : rows) {
+                writer.append(r);
+            }
+            writer.finish();
+        }
+    }
+
+    /**
+     * 逐行写入的归档文件；调用方应按学生ID顺序追加，否则同一学生会分成多个块。
+     * finish() 之后文件才会出现，未 finish 就 close 时丢弃已写入的内容
+     */
+    public static final class Writer implements Closeable {
+
+        private final Path file;
+        private final Path spill;
+        private final OutputStream data;
+        private final List<Block> index = new ArrayList<>();
+        private final List<StudyRecord> current = new ArrayList<>();
+        private long written;
+        private int n;
+        private boolean finished;
+
+        public Writer(Path file) throws IOException {
+            this.file = file;
+            this.spill = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName() + ".", ".blocks");
+            try {
+                this.data = new BufferedOutputStream(Files.newOutputStream(spill), BUFFER_BYTES);
+            } catch (IOException e) {
+                Files.deleteIfExists(spill);
+                throw e;
+            }
+        }
+
+        public void append(StudyRecord r) throws IOException {
+            if (!current.isEmpty() && intOrNull(current.get(0).getStudentId()) != intOrNull(r.getStudentId())) {
+                flushBlock();
+            }
+            current.add(r);
+            n++;
+        }
+
+        public int size() {
+            return n;
+        }
+
+        /**
+         * 写出文件头和索引，再拼接各个块
+         */
+        public void finish() throws IOException {
+            flushBlock();
+            data.close();
+            Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), BUFFER_BYTES))) {
+                out.writeInt(MAGIC);
+                out.writeInt(n);
+                out.writeInt(index.size());
+                // 块长度由相邻块的偏移得出，索引中只记录偏移
+                for (Block block : index) {
+                    out.writeInt(intOrNull(block.studentId()));
+                    out.writeInt(block.rows());
+                    out.writeLong(block.offset());
+                }
+                try (InputStream in = Files.newInputStream(spill)) {
+                    in.transferTo(out);
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            finished = true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                if (!finished) {
+                    data.close();
+                }
+            } finally {
+                Files.deleteIfExists(spill);
+            }
+        }
+
+        private void flushBlock() throws IOException {
+            if (current.isEmpty()) {
+                return;
+            }
+            current.sort(BY_CREATED);
+            byte[] block = encode(current);
+            data.write(block);
+            index.add(new Block(current.get(0).getStudentId(), current.size(), written, block.length));
+            written += block.length;
+            current.clear();
+        }
+    }
+
+    /**
+     * 读取文件的学生索引
+     */
+    public static List<Block> index(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return readIndex(channel, file);
+        }
+    }
+
+    /**
+     * 某个学生（studentId为null时为全部学生）在文件中的行数，只读索引
+     */
+    public static int count(Path file, Integer studentId) throws IOException {
+        int rows = 0;
+        for (Block block : index(file)) {
+            if (studentId == null || studentId.equals(block.studentId())) {
+                rows += block.rows();
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * 读取某个学生满足条件的记录（按创建时间升序），studentId为null时读取全部学生
+     */
+    public static List<StudyRecord> read(Path file, Integer studentId, Predicate<StudyRecord> filter) throws IOException {
+        List<StudyRecord> rows = new ArrayList<>();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            List<Block> index = readIndex(channel, file);
+            long dataStart = HEADER_BYTES + (long) index.size() * INDEX_ENTRY_BYTES;
+            for (Block block : index) {
+                if (studentId != null && !studentId.equals(block.studentId())) {
+                    continue;
+                }
+                ByteBuffer buffer = ByteBuffer.allocate(block.length());
+                long position = dataStart + block.offset();
+                while (buffer.hasRemaining()) {
+                    if (channel.read(buffer, position + buffer.position()) < 0) {
+                        throw new IOException("学习记录归档文件不完整：" + file);
+                    }
+                }
+                for (StudyRecord r : decode(buffer.array(), block)) {
+                    if (filter.test(r)) {
+                        rows.add(r);
+                    }
+                }
+            }
+        }
+        return rows;
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private static List<Block> readIndex(FileChannel channel, Path file) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(
+            Channels.newInputStream(channel.position(0)), BUFFER_BYTES));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("学习记录归档文件格式不正确：" + file);
+        }
+        in.readInt();   // 总行数
+        int blocks = in.readInt();
+        long dataBytes = channel.size() - HEADER_BYTES - (long) blocks * INDEX_ENTRY_BYTES;
+        List<Block> index = new ArrayList<>(blocks);
+        Integer previousStudent = null;
+        int previousRows = 0;
+        long previousOffset = -1;
+        for (int i = 0; i < blocks; i++) {
+            Integer studentId = nullableInt(in.readInt());
+            int rows = in.readInt();
+            long offset = in.readLong();
+            if (previousOffset >= 0) {
+                index.add(new Block(previousStudent, previousRows, previousOffset, (int) (offset - previousOffset)));
+            }
+            previousStudent = studentId;
+            previousRows = rows;
+            previousOffset = offset;
+        }
+        if (previousOffset >= 0) {
+            index.add(new Block(previousStudent, previousRows, previousOffset, (int) (dataBytes - previousOffset)));
+        }
+        return index;
+    }
+
+    // 块内逐列写出，资源类型取值很少，用块内字典编码，每行只存1字节
+    private static byte[] encode(List<StudyRecord> rows) throws IOException {
+        Map<String, Integer> codes = new HashMap<>();
+        List<String> values = new ArrayList<>();
+        byte[] types = new byte[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            String type = rows.get(i).getResourceType();
+            if (type == null) {
+                types[i] = -1;
+                continue;
+            }
+            Integer code = codes.get(type);
+            if (code == null) {
+                if (values.size() >= Byte.MAX_VALUE) {
+                    throw new IOException("资源类型取值过多，无法字典编码");
+                }
+                code = values.size();
+                codes.put(type, code);
+                values.add(type);
+            }
+            types[i] = code.byteValue();
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new GZIPOutputStream(bytes))) {
+            for (StudyRecord r : rows) out.writeInt(intOrNull(r.getId()));
+            for (StudyRecord r : rows) out.writeInt(intOrNull(r.getResourceId()));
+            out.writeInt(values.size());
+            for (String value : values) {
+                out.writeUTF(value);
+            }
+            out.write(types);
+            for (StudyRecord r : rows) out.writeInt(intOrNull(r.getStudyDuration()));
+            for (StudyRecord r : rows) out.writeInt(intOrNull(r.getProgress()));
+            for (StudyRecord r : rows) out.writeLong(timeOrNull(r.getStartTime()));
+            for (StudyRecord r : rows) out.writeLong(timeOrNull(r.getEndTime()));
+            for (StudyRecord r : rows) out.writeLong(timeOrNull(r.getCreatedTime()));
+            for (StudyRecord r : rows) out.writeLong(timeOrNull(r.getUpdatedTime()));
+        }
+        return bytes.toByteArray();
+    }
+
+    private static List<StudyRecord> decode(byte[] block, Block entry) throws IOException {
+        int n = entry.rows();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new ByteArrayInputStream(block))))) {
+            int[] ids = readInts(in, n);
+            int[] resources = readInts(in, n);
+            String[] types = readDictionary(in, n);
+            int[] durations = readInts(in, n);
+            int[] progress = readInts(in, n);
+            long[] starts = readLongs(in, n);
+            long[] ends = readLongs(in, n);
+            long[] created = readLongs(in, n);
+            long[] updated = readLongs(in, n);
+            List<StudyRecord> rows = new ArrayList<>(n);
+            for (int i = 0; i < n; i++) {
+                StudyRecord r = new StudyRecord();
+                r.setStudentId(entry.studentId());
+                r.setId(nullableInt(ids[i]));
+                r.setResourceId(nullableInt(resources[i]));
+                r.setResourceType(types[i]);
+                r.setStudyDuration(nullableInt(durations[i]));
+                r.setProgress(nullableInt(progress[i]));
+                r.setStartTime(nullableTime(starts[i]));
+                r.setEndTime(nullableTime(ends[i]));
+                r.setCreatedTime(nullableTime(created[i]));
+                r.setUpdatedTime(nullableTime(updated[i]));
+                rows.add(r);
+            }
+            return rows;
+        }
+    }
+
+    private static String[] readDictionary(DataInputStream in, int n) throws IOException {
+        String[] values = new String[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readUTF();
+        }
+        byte[] column = new byte[n];
+        in.readFully(column);
+        String[] result = new String[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = column[i] < 0 ? null : values[column[i]];
+        }
+        return result;
+    }
+
+    private static int[] readInts(DataInputStream in, int n) throws IOException {
+        int[] values = new int[n];
+        for (int i = 0; i < n; i++) values[i] = in.readInt();
+        return values;
+    }
+
+    private static long[] readLongs(DataInputStream in, int n) throws IOException {
+        long[] values = new long[n];
+        for (int i = 0; i < n; i++) values[i] = in.readLong();
+        return values;
+    }
+
+    private static int intOrNull(Integer value) {
+        return value == null ? NULL_INT : value;
+    }
+
+    private static Integer nullableInt(int value) {
+        return value == NULL_INT ? null : value;
+    }
+
+    private static long timeOrNull(LocalDateTime time) {
+        return time == null ? NULL_TIME : time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime nullableTime(long value) {
+        return value == NULL_TIME ? null : LocalDateTime.ofEpochSecond(value, 0, ZoneOffset.UTC);
+    }
+}
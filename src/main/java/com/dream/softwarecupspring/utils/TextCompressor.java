@@ -0,0 +1,195 @@
+package com.dream.softwarecupspring.utils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 长文本压缩（Deflate + 预置字典）
+ * 存储格式：首字节 0x01 + 2字节字典ID + 压缩数据；0x00 + 原始UTF-8（太短不值得压缩时）；
+ * 其他首字节视为迁移前的原始UTF-8文本，因此列改为BLOB后无需一次性重写全部数据。
+ * 未启用压缩时 compress 直接输出原始UTF-8，没有使用类型处理器的映射也能正常读写同一列
+ */
+public final class TextCompressor {
+
+    private static final byte RAW = 0x00;
+    private static final byte DEFLATED = 0x01;
+    private static final int MIN_COMPRESS_BYTES = 64;
+    private static final int MAX_DICTIONARY_BYTES = 32 * 1024;  // Deflate 窗口大小
+    private static final int SEGMENT_CHARS = 16;
+
+    private static final Map<Integer, byte[]> DICTIONARIES = new ConcurrentHashMap<>();
+    private static volatile int currentDictionaryId = 0;    // 0 表示不使用字典
+    private static volatile boolean enabled = false;
+    private static volatile IntFunction<byte[]> dictionaryLoader = id -> null;
+
+    private TextCompressor() {
+    }
+
+    /**
+     * 是否压缩新写入的文本；关闭时仍能读取已压缩的数据
+     */
+    public static void setEnabled(boolean value) {
+        enabled = value;
+    }
+
+    /**
+     * 遇到本节点尚未加载的字典ID时的加载方式（其他节点训练的字典），返回null表示不存在
+     */
+    public static void setDictionaryLoader(IntFunction<byte[]> loader) {
+        dictionaryLoader = loader;
+    }
+
+    /**
+     * 注册字典；current为true时新写入的数据使用该字典
+     */
+    public static void registerDictionary(int id, byte[] dictionary, boolean current) {
+        DICTIONARIES.put(id, dictionary);
+        if (current) {
+            currentDictionaryId = id;
+        }
+    }
+
+    public static byte[] compress(String text) {
+        byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+        if (!enabled) {
+            // 首字节恰好是格式标记时仍要加头，否则读回时会被当成压缩格式
+            return raw.length > 0 && (raw[0] == RAW || raw[0] == DEFLATED) ? withHeader(RAW, raw, raw.length) : raw;
+        }
+        if (raw.length < MIN_COMPRESS_BYTES) {
+            return withHeader(RAW, raw, raw.length);
+        }
+        int dictionaryId = currentDictionaryId;
+        Deflater deflater = new Deflater(Deflater.BEST_COMPRESSION);
+        try {
+            byte[] dictionary = DICTIONARIES.get(dictionaryId);
+            if (dictionary != null) {
+                deflater.setDictionary(dictionary);
+            }
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            out.write(DEFLATED);
+            out.write(dictionaryId >>> 8);
+            out.write(dictionaryId);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            // 压缩后反而更大时直接存原文
+            return out.size() < raw.length + 1 ? out.toByteArray() : withHeader(RAW, raw, raw.length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static String decompress(byte[] data) {
+        if (data == null) {
+            return null;
+        }
+        if (data.length == 0) {
+            return "";
+        }
+        if (data[0] == RAW) {
+            return new String(data, 1, data.length - 1, StandardCharsets.UTF_8);
+        }
+        if (data[0] != DEFLATED) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+        int dictionaryId = ((data[1] & 0xFF) << 8) | (data[2] & 0xFF);
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(data, 3, data.length - 3);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && inflater.needsDictionary()) {
+                    byte[] dictionary = dictionary(dictionaryId);
+                    if (dictionary == null) {
+                        throw new IllegalStateException("缺少压缩字典：" + dictionaryId);
+                    }
+                    inflater.setDictionary(dictionary);
+                } else if (n == 0 && inflater.needsInput()) {
+                    throw new IllegalStateException("压缩数据不完整");
+                }
+                out.write(buffer, 0, n);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("压缩数据损坏", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * 用样本文本训练字典：统计在多个样本中重复出现的片段，按出现次数从少到多拼接
+     * （Deflate 对距离越近的内容编码越短，最常用的片段放在字典末尾）
+     */
+    public static byte[] trainDictionary(List<String> samples) {
+        Map<String, Integer> frequency = new HashMap<>();
+        for (String sample : samples) {
+            if (sample == null) {
+                continue;
+            }
+            Map<String, Boolean> seen = new HashMap<>();
+            for (int i = 0; i + SEGMENT_CHARS <= sample.length(); i += SEGMENT_CHARS / 2) {
+                String segment = sample.substring(i, i + SEGMENT_CHARS);
+                if (seen.putIfAbsent(segment, Boolean.TRUE) == null) {
+                    frequency.merge(segment, 1, Integer::sum);
+                }
+            }
+        }
+        List<Map.Entry<String, Integer>> repeated = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : frequency.entrySet()) {
+            if (entry.getValue() > 1) {
+                repeated.add(entry);
+            }
+        }
+        repeated.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+
+        List<byte[]> chosen = new ArrayList<>();
+        int size = 0;
+        for (Map.Entry<String, Integer> entry : repeated) {
+            byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (size + bytes.length > MAX_DICTIONARY_BYTES) {
+                break;
+            }
+            chosen.add(bytes);
+            size += bytes.length;
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size);
+        for (int i = chosen.size() - 1; i >= 0; i--) {
+            out.writeBytes(chosen.get(i));
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] dictionary(int id) {
+        byte[] dictionary = DICTIONARIES.get(id);
+        if (dictionary == null) {
+            // 字典只增不改，并发加载同一个ID时结果相同，不需要加锁
+            dictionary = dictionaryLoader.apply(id);
+            if (dictionary != null) {
+                DICTIONARIES.putIfAbsent(id, dictionary);
+            }
+        }
+        return dictionary;
+    }
+
+    private static byte[] withHeader(byte header, byte[] body, int length) {
+        byte[] result = new byte[length + 1];
+        result[0] = header;
+        System.arraycopy(body, 0, result, 1, length);
+        return result;
+    }
+}
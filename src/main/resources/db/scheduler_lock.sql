@@ -0,0 +1,7 @@
+-- 定时任务的集群租约（建在分片0）：同一任务只有取得租约的节点执行，节点宕机后租约到期自动失效
+CREATE TABLE IF NOT EXISTS scheduler_lock (
+    name            VARCHAR(64) NOT NULL,
+    owner           VARCHAR(128) NOT NULL,
+    locked_until    DATETIME NOT NULL,
+    PRIMARY KEY (name)
+);
@@ -0,0 +1,30 @@
+-- 全局分片状态（建在分片0）：启用分片后所有节点按这里的分片数路由，重分片的进度也记录在这里，
+-- 节点重启或中途换节点执行重分片都不会丢失已搬迁学生的路由
+CREATE TABLE IF NOT EXISTS shard_state (
+    id              INT NOT NULL,
+    shard_count     INT NOT NULL,
+    target_count    INT NULL,
+    freeze_unmoved  TINYINT NOT NULL DEFAULT 0,
+    version         BIGINT NOT NULL,
+    PRIMARY KEY (id)
+);
+
+-- 重分片期间已搬迁到新分片的学生
+CREATE TABLE IF NOT EXISTS shard_moved (
+    student_id      INT NOT NULL,
+    PRIMARY KEY (student_id)
+);
+
+-- 正在搬迁、暂停写入的学生
+CREATE TABLE IF NOT EXISTS shard_frozen (
+    student_id      INT NOT NULL,
+    PRIMARY KEY (student_id)
+);
+
+-- 各节点已应用并确认的状态版本，updated_time 是最近一次心跳
+CREATE TABLE IF NOT EXISTS shard_node (
+    node_id         VARCHAR(128) NOT NULL,
+    version         BIGINT NOT NULL,
+    updated_time    DATETIME NOT NULL,
+    PRIMARY KEY (node_id)
+);
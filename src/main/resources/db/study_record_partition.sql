@@ -0,0 +1,35 @@
+-- 将 study_record 和 ai_question 改为按月 RANGE 分区（一次性执行）
+-- 分区键必须包含在主键中，因此主键改为 (id, created_time)
+-- 月分区由 StudyRecordPartitionService 自动从 pmax 中拆分：首次运行时从表中最早的月份一直建到当前月之后，
+-- 历史数据按月落到各自的分区，超过保留期限的月份随后即可逐个归档
+
+ALTER TABLE study_record DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_time);
+ALTER TABLE study_record ADD INDEX idx_student_created (student_id, created_time);
+ALTER TABLE study_record PARTITION BY RANGE (TO_DAYS(created_time)) (
+    PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+ALTER TABLE ai_question DROP PRIMARY KEY, ADD PRIMARY KEY (id, created_time);
+ALTER TABLE ai_question ADD INDEX idx_student_created (student_id, created_time);
+ALTER TABLE ai_question PARTITION BY RANGE (TO_DAYS(created_time)) (
+    PARTITION pmax VALUES LESS THAN MAXVALUE
+);
+
+-- 归档月份的学习汇总：分区删除后学习时长、学习天数、平均进度等统计仍可由汇总表补齐
+CREATE TABLE IF NOT EXISTS study_record_summary (
+    student_id      INT NOT NULL,
+    month           DATE NOT NULL,
+    study_time      BIGINT NOT NULL DEFAULT 0,
+    record_count    INT NOT NULL DEFAULT 0,
+    progress_sum    BIGINT NOT NULL DEFAULT 0,
+    progress_count  INT NOT NULL DEFAULT 0,
+    study_days      INT NOT NULL DEFAULT 0,
+    PRIMARY KEY (student_id, month)
+);
+
+-- 归档月份中已完成的资源，与热数据合并去重后得到完成课件数
+CREATE TABLE IF NOT EXISTS study_record_completed (
+    student_id      INT NOT NULL,
+    resource_id     INT NOT NULL,
+    PRIMARY KEY (student_id, resource_id)
+);
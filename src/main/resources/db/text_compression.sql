@@ -0,0 +1,11 @@
+-- 长文本压缩存储（一次性执行）
+-- 列改为二进制后原有的UTF-8内容保持不变，读取时按原文处理，可随时用迁移任务逐批压缩
+
+CREATE TABLE IF NOT EXISTS text_dictionary (
+    id           INT PRIMARY KEY,
+    data         BLOB NOT NULL,
+    created_time DATETIME NOT NULL
+);
+
+ALTER TABLE student_questions MODIFY content MEDIUMBLOB;
+ALTER TABLE student_questions MODIFY answer MEDIUMBLOB;
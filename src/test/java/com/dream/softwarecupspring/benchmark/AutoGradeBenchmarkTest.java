@@ -0,0 +1,145 @@
+package com.dream.softwarecupspring.benchmark;
+
+import com.dream.softwarecupspring.pojo.AnswerKey;
+import com.dream.softwarecupspring.pojo.StudentAnswer;
+import com.dream.softwarecupspring.utils.ObjectiveGrader;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * 自动批改基准：对一万份模拟提交分别做单线程和工作窃取线程池并行批改，校验两者结果一致，并在日志中输出耗时和吞吐
+ * 不依赖数据库和Spring容器
+ */
+@Slf4j
+class AutoGradeBenchmarkTest {
+
+    private static final int SUBMISSIONS = 10_000;
+    private static final int QUESTIONS = 20;
+    private static final int WARMUP_ROUNDS = 3;
+    private static final int MEASURE_ROUNDS = 5;
+    private static final String[] TYPES = {"single", "multiple", "judge", "fill", "short"};
+
+    private static Map<Integer, AnswerKey> keys;
+    private static List<List<StudentAnswer>> data;
+    private static ForkJoinPool pool;
+
+    @BeforeAll
+    static void setUp() {
+        Random random = new Random(42);
+        keys = answerKeys(random);
+        data = submissions(keys, SUBMISSIONS, random);
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pool.shutdown();
+    }
+
+    @Test
+    void parallelGradingMatchesSequential() throws Exception {
+        long sequential = measure("整份批改（单线程）", SUBMISSIONS, () -> {
+            long sum = 0;
+            for (List<StudentAnswer> submission : data) {
+                sum += ObjectiveGrader.gradeSubmission(keys, submission).total();
+            }
+            return sum;
+        });
+        long parallel = measure("整份批改（并行）", SUBMISSIONS, () -> pool.submit(() -> data.parallelStream()
+            .mapToLong(submission -> ObjectiveGrader.gradeSubmission(keys, submission).total())
+            .sum()).get());
+
+        assertEquals(sequential, parallel);
+        assertEquals(expectedTotal(), sequential);
+    }
+
+    @Test
+    void everySubmissionIsPendingOnSubjectiveQuestions() throws Exception {
+        long pending = pool.submit(() -> data.parallelStream()
+            .filter(submission -> ObjectiveGrader.gradeSubmission(keys, submission).pending())
+            .count()).get();
+        assertEquals(SUBMISSIONS, pending);
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    // 返回一轮的结果，各轮结果不一致时失败
+    private static long measure(String name, int operations, Task task) throws Exception {
+        long result = task.run();
+        for (int i = 1; i < WARMUP_ROUNDS; i++) {
+            assertEquals(result, task.run());
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURE_ROUNDS; i++) {
+            long start = System.nanoTime();
+            assertEquals(result, task.run());
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        log.info("{} 提交 {} 份，每份 {} 题：最快 {} ms，{} 份/秒", name, operations, QUESTIONS,
+            String.format("%.2f", best / 1e6), String.format("%,.0f", operations / (best / 1e9)));
+        return result;
+    }
+
+    // 逐题单独判分得到的总分，作为整份批改的对照
+    private static long expectedTotal() {
+        long sum = 0;
+        for (List<StudentAnswer> submission : data) {
+            for (StudentAnswer answer : submission) {
+                Integer score = ObjectiveGrader.grade(keys.get(answer.getQuestionId()), answer.getAnswer());
+                sum += score == null ? 0 : score;
+            }
+        }
+        return sum;
+    }
+
+    private static Map<Integer, AnswerKey> answerKeys(Random random) {
+        Map<Integer, AnswerKey> keys = new LinkedHashMap<>();
+        for (int q = 1; q <= QUESTIONS; q++) {
+            String type = TYPES[q % TYPES.length];
+            String answer = switch (type) {
+                case "single" -> String.valueOf((char) ('A' + random.nextInt(4)));
+                case "multiple" -> "ACD";
+                case "judge" -> random.nextBoolean() ? "对" : "错";
+                case "fill" -> "O(n log n)|O(nlogn)";
+                default -> "参考答案";
+            };
+            keys.put(q, new AnswerKey(q, type, answer, 5, "知识点" + (q % 6)));
+        }
+        return keys;
+    }
+
+    private static List<List<StudentAnswer>> submissions(Map<Integer, AnswerKey> keys, int count, Random random) {
+        List<List<StudentAnswer>> data = new ArrayList<>(count);
+        for (int s = 1; s <= count; s++) {
+            List<StudentAnswer> submission = new ArrayList<>(QUESTIONS);
+            for (AnswerKey key : keys.values()) {
+                String answer = switch (key.getType()) {
+                    case "single" -> String.valueOf((char) ('Ａ' + random.nextInt(4)));   // 混入全角字母
+                    case "multiple" -> random.nextBoolean() ? "A, C, D" : "AC";
+                    case "judge" -> random.nextBoolean() ? "正确" : "F";
+                    case "fill" -> random.nextBoolean() ? " O(n  log n) " : "O(n^2)";
+                    default -> "学生作答内容" + s;
+                };
+                submission.add(new StudentAnswer(1, s, key.getQuestionId(), answer, null));
+            }
+            data.add(submission);
+        }
+        return data;
+    }
+
+    @FunctionalInterface
+    private interface Task {
+        long run() throws Exception;
+    }
+}
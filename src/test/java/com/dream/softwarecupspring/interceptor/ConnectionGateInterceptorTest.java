@@ -0,0 +1,71 @@
+package com.dream.softwarecupspring.interceptor;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConnectionGateInterceptorTest {
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void singlePoolRejectsWhenExhausted() throws Exception {
+        ConnectionGateInterceptor gate = new ConnectionGateInterceptor(new int[]{1}, 10);
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        assertTrue(gate.preHandle(first, new MockHttpServletResponse(), null));
+
+        MockHttpServletResponse rejected = new MockHttpServletResponse();
+        assertFalse(gate.preHandle(new MockHttpServletRequest(), rejected, null));
+        assertEquals(503, rejected.getStatus());
+
+        gate.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        assertEquals(1, gate.availablePermits(0));
+    }
+
+    @Test
+    void exhaustedShardDoesNotBlockOtherShards() throws Exception {
+        ConnectionGateInterceptor gate = new ConnectionGateInterceptor(new int[]{1, 1}, 10);
+        MockHttpServletRequest first = enterRequest(gate);
+        gate.enter(0);
+        gate.enter(0);   // 同一请求重复取连接只占一个许可
+        assertEquals(0, gate.availablePermits(0));
+
+        MockHttpServletRequest second = enterRequest(gate);
+        assertThrows(IllegalStateException.class, () -> gate.enter(0));
+        gate.enter(1);
+        assertEquals(0, gate.availablePermits(1));
+
+        gate.afterCompletion(first, new MockHttpServletResponse(), null, null);
+        gate.afterCompletion(second, new MockHttpServletResponse(), null, null);
+        assertEquals(1, gate.availablePermits(0));
+        assertEquals(1, gate.availablePermits(1));
+    }
+
+    @Test
+    void connectionsOutsideRequestsAreNotGated() {
+        ConnectionGateInterceptor gate = new ConnectionGateInterceptor(new int[]{1, 1}, 10);
+        gate.enter(0);
+        gate.enter(5);
+        assertEquals(1, gate.availablePermits(0));
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private static MockHttpServletRequest enterRequest(ConnectionGateInterceptor gate) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        assertTrue(gate.preHandle(request, new MockHttpServletResponse(), null));
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        return request;
+    }
+}
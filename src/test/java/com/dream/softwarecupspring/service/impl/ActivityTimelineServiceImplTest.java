@@ -0,0 +1,70 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.ActivityMapper;
+import com.dream.softwarecupspring.pojo.ActivityEvent;
+import com.dream.softwarecupspring.service.StudyRecordPartitionService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 预热读到的行和提交回调写入的同一行只保留一条
+ */
+class ActivityTimelineServiceImplTest {
+
+    private static final int STUDENT = 7;
+
+    private ActivityMapper activityMapper;
+    private ActivityTimelineServiceImpl timeline;
+
+    @BeforeEach
+    void setUp() {
+        activityMapper = mock(ActivityMapper.class);
+        StudyRecordPartitionService partitions = mock(StudyRecordPartitionService.class);
+        when(partitions.getArchivedStudyRecords(any(), anyInt())).thenReturn(List.of());
+        timeline = new ActivityTimelineServiceImpl();
+        ReflectionTestUtils.setField(timeline, "activityMapper", activityMapper);
+        ReflectionTestUtils.setField(timeline, "studyRecordPartitionService", partitions);
+        ReflectionTestUtils.setField(timeline, "studentCapacity", 20);
+        ReflectionTestUtils.setField(timeline, "mergeWindowMinutes", 30L);
+    }
+
+    @Test
+    void rowAlreadyWarmedIsNotAppendedTwice() {
+        LocalDateTime committed = LocalDateTime.now().minusSeconds(1);
+        when(activityMapper.getRecentActivitiesByStudentId(eq(STUDENT), anyInt())).thenReturn(List.of(
+            new ActivityEvent(STUDENT, "ai", "向AI提问：什么是堆", committed, null, "ai:5"),
+            new ActivityEvent(STUDENT, "discussion", "提交了问题：排序", committed.minusMinutes(1), null, "discussion:3")));
+        timeline.getRecentActivities(STUDENT, 10);
+
+        // 提交回调晚于预热执行，数据库中已经有这一行
+        timeline.record(STUDENT, "ai", "向AI提问：什么是堆", 5);
+        timeline.record(STUDENT, "ai", "向AI提问：什么是栈", 6);
+
+        List<ActivityEvent> events = timeline.getRecentActivities(STUDENT, 10);
+        assertEquals(List.of("ai:6", "ai:5", "discussion:3"), events.stream().map(ActivityEvent::getSourceKey).toList());
+    }
+
+    @Test
+    void heartbeatsInWindowAreMerged() {
+        when(activityMapper.getRecentActivitiesByStudentId(eq(STUDENT), anyInt())).thenReturn(List.of());
+        timeline.getRecentActivities(STUDENT, 10);
+
+        timeline.record(STUDENT, "study", "完成了一次课件学习", "study:1");
+        timeline.record(STUDENT, "study", "完成了一次课件学习", "study:2");
+        timeline.record(STUDENT, "study", "完成了一次课件学习", "study:1");
+
+        List<ActivityEvent> events = timeline.getRecentActivities(STUDENT, 10);
+        assertEquals(List.of("study:1", "study:2"), events.stream().map(ActivityEvent::getMergeKey).toList());
+    }
+}
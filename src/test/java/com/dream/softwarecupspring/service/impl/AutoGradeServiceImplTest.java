@@ -0,0 +1,163 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.StudentAnswerMapper;
+import com.dream.softwarecupspring.pojo.StudentAnswer;
+import com.dream.softwarecupspring.service.KnowledgeMasteryService;
+import com.dream.softwarecupspring.service.ScoreAnalyticsService;
+import com.dream.softwarecupspring.sharding.ShardRouter;
+import com.dream.softwarecupspring.sharding.ShardScatterGather;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * 自动批改的数据库测试：单个 H2 内存库（MySQL 模式），不启用分片；成绩分布和掌握度用 mock 检查回调
+ * 排队上限设为0，批改总是在提交事务的 afterCommit 回调中直接执行
+ */
+class AutoGradeServiceImplTest {
+
+    private static final int HOMEWORK = 1;
+    private static final int STUDENT = 7;
+
+    private JdbcTemplate jdbc;
+    private TransactionTemplate transactionTemplate;
+    private StudentAnswerMapper studentAnswerMapper;
+    private ScoreAnalyticsService scoreAnalyticsService;
+    private KnowledgeMasteryService knowledgeMasteryService;
+    private ShardScatterGather scatterGather;
+    private AutoGradeServiceImpl autoGradeService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:grading-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        new ResourceDatabasePopulator(new ClassPathResource("db/grading_test.sql")).execute(dataSource);
+        jdbc = new JdbcTemplate(dataSource);
+
+        SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setMapperLocations(new ClassPathResource("mapper/StudentAnswerMapper.xml"));
+        studentAnswerMapper = new SqlSessionTemplate(factoryBean.getObject()).getMapper(StudentAnswerMapper.class);
+
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        scoreAnalyticsService = mock(ScoreAnalyticsService.class);
+        knowledgeMasteryService = mock(KnowledgeMasteryService.class);
+        scatterGather = new ShardScatterGather(new DefaultListableBeanFactory().getBeanProvider(ShardRouter.class));
+
+        autoGradeService = new AutoGradeServiceImpl(transactionManager, 1, 0);
+        ReflectionTestUtils.setField(autoGradeService, "studentAnswerMapper", studentAnswerMapper);
+        ReflectionTestUtils.setField(autoGradeService, "scoreAnalyticsService", scoreAnalyticsService);
+        ReflectionTestUtils.setField(autoGradeService, "knowledgeMasteryService", knowledgeMasteryService);
+        ReflectionTestUtils.setField(autoGradeService, "shardScatterGather", scatterGather);
+
+        jdbc.update("INSERT INTO questions VALUES (1, 'single', 'A', '排序'), (2, 'judge', '对', '排序')");
+        jdbc.update("INSERT INTO homework_questions VALUES (1, 1, 5), (1, 2, 3)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        autoGradeService.shutdown();
+        scatterGather.shutdown();
+    }
+
+    @Test
+    void inlineGradingAfterCommitIsPersisted() {
+        submit(Map.of(1, "A", 2, "错"));
+
+        assertEquals(2, status());
+        assertEquals(5, score());
+        assertEquals(5, answerScore(1));
+        assertEquals(0, answerScore(2));
+        // 回调注册在批改自己的事务上，提交后都会执行
+        verify(scoreAnalyticsService).updateScore(HOMEWORK, null, 5);
+        verify(knowledgeMasteryService).recordAnswer(STUDENT, "排序", null, 5, 5);
+    }
+
+    @Test
+    void gradesCurrentAnswersInsteadOfSubmittedOnes() {
+        submit(Map.of(1, "B", 2, "对"));
+        // 第二次提交在第一次的批改任务之前写入：任务读取的是当前答案
+        transactionTemplate.executeWithoutResult(status -> {
+            saveAnswers(Map.of(1, "A", 2, "对"));
+            jdbc.update("UPDATE student_homework SET status = 1 WHERE student_id = ?", STUDENT);
+            autoGradeService.gradeAsync(HOMEWORK, STUDENT);
+        });
+
+        assertEquals(8, score());
+        assertEquals(5, answerScore(1));
+        // 掌握度用新得分替换上一次批改计入的得分
+        verify(knowledgeMasteryService).recordAnswer(STUDENT, "排序", 0, 5, 5);
+        // 重新提交时旧成绩已由 submitHomework 移出成绩分布，这里只加入新成绩
+        verify(scoreAnalyticsService).updateScore(HOMEWORK, null, 8);
+    }
+
+    @Test
+    void skipsSubmissionThatIsNoLongerSubmitted() {
+        jdbc.update("INSERT INTO student_homework (homework_id, student_id, status) VALUES (?, ?, 0)", HOMEWORK, STUDENT);
+        transactionTemplate.executeWithoutResult(status -> {
+            saveAnswers(Map.of(1, "A", 2, "对"));
+            autoGradeService.gradeAsync(HOMEWORK, STUDENT);
+        });
+
+        assertEquals(0, status());
+        assertNull(score());
+        assertNull(answerScore(1));
+        verify(scoreAnalyticsService, never()).updateScore(eq(HOMEWORK), any(), any());
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private void submit(Map<Integer, String> answers) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (jdbc.update("UPDATE student_homework SET status = 1 WHERE student_id = ?", STUDENT) == 0) {
+                jdbc.update("INSERT INTO student_homework (homework_id, student_id, status) VALUES (?, ?, 1)",
+                    HOMEWORK, STUDENT);
+            }
+            saveAnswers(answers);
+            autoGradeService.gradeAsync(HOMEWORK, STUDENT);
+        });
+    }
+
+    private void saveAnswers(Map<Integer, String> answers) {
+        studentAnswerMapper.saveOrUpdateBatch(answers.entrySet().stream()
+            .map(entry -> new StudentAnswer(HOMEWORK, STUDENT, entry.getKey(), entry.getValue(), null))
+            .toList());
+    }
+
+    private Integer status() {
+        return jdbc.queryForObject("SELECT status FROM student_homework WHERE student_id = ?", Integer.class, STUDENT);
+    }
+
+    private Integer score() {
+        return jdbc.queryForObject("SELECT score FROM student_homework WHERE student_id = ?", Integer.class, STUDENT);
+    }
+
+    private Integer answerScore(int questionId) {
+        List<Integer> scores = jdbc.queryForList(
+            "SELECT score FROM student_answers WHERE student_id = ? AND question_id = ?", Integer.class, STUDENT, questionId);
+        return scores.get(0);
+    }
+}
@@ -0,0 +1,161 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.KnowledgeMasteryMapper;
+import com.dream.softwarecupspring.pojo.KnowledgeScore;
+import com.dream.softwarecupspring.sharding.ShardRouter;
+import com.dream.softwarecupspring.sharding.ShardScatterGather;
+import org.apache.ibatis.session.ResultContext;
+import org.apache.ibatis.session.ResultHandler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 重新汇总与批改提交交错时，每次批改只计入一次
+ * 学生7在“排序”上已有一道 0/5 的题，新批改一道 5/5：正确的掌握度是 50，重复计入时是 66.7
+ */
+class KnowledgeMasteryServiceImplTest {
+
+    private static final int STUDENT = 7;
+
+    private final List<KnowledgeScore> database = new CopyOnWriteArrayList<>();
+    private KnowledgeMasteryMapper knowledgeMasteryMapper;
+    private ShardScatterGather scatterGather;
+    private KnowledgeMasteryServiceImpl mastery;
+
+    @BeforeEach
+    void setUp() {
+        knowledgeMasteryMapper = mock(KnowledgeMasteryMapper.class);
+        when(knowledgeMasteryMapper.openSnapshot()).thenReturn(1);
+        scatterGather = new ShardScatterGather(new DefaultListableBeanFactory().getBeanProvider(ShardRouter.class));
+        mastery = new KnowledgeMasteryServiceImpl(mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(mastery, "knowledgeMasteryMapper", knowledgeMasteryMapper);
+        ReflectionTestUtils.setField(mastery, "shardScatterGather", scatterGather);
+        database.add(new KnowledgeScore(STUDENT, "排序", 0, 5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        scatterGather.shutdown();
+    }
+
+    @Test
+    void gradeCommittedBeforeSnapshotIsNotReplayed() throws Exception {
+        streamRows(() -> { });
+        CountDownLatch committed = new CountDownLatch(1);
+        CountDownLatch reloadWaiting = new CountDownLatch(1);
+
+        CompletableFuture<Void> grading = CompletableFuture.runAsync(() -> inTransaction(() -> {
+            mastery.recordAnswer(STUDENT, "排序", null, 5, 5);
+        }, () -> {
+            // 数据已提交，提交回调还没执行时开始重新汇总
+            database.add(new KnowledgeScore(STUDENT, "排序", 5, 5));
+            committed.countDown();
+            await(reloadWaiting);
+        }));
+        await(committed);
+        CompletableFuture<Void> reload = CompletableFuture.runAsync(mastery::reload);
+        ReentrantReadWriteLock gate = (ReentrantReadWriteLock) ReflectionTestUtils.getField(mastery, "commitGate");
+        while (!gate.hasQueuedThreads()) {
+            Thread.sleep(5);
+        }
+        reloadWaiting.countDown();
+        grading.get(5, TimeUnit.SECONDS);
+        reload.get(5, TimeUnit.SECONDS);
+
+        assertEquals(50.0, weakest());
+    }
+
+    @Test
+    void gradeCommittedAfterSnapshotIsReplayed() {
+        // 快照打开后、流式读取结束前完成的批改不在读取结果中
+        streamRows(() -> inTransaction(() -> mastery.recordAnswer(STUDENT, "排序", null, 5, 5), () -> { }));
+
+        mastery.reload();
+
+        assertEquals(50.0, weakest());
+    }
+
+    @Test
+    void rolledBackGradeIsNotRecorded() {
+        streamRows(() -> { });
+        mastery.reload();
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            mastery.recordAnswer(STUDENT, "排序", null, 5, 5);
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_ROLLED_BACK);
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+        assertEquals(0.0, weakest());
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    // 流式读取时先执行 beforeRows，再返回数据库的当前内容
+    @SuppressWarnings("unchecked")
+    private void streamRows(Runnable beforeRows) {
+        doAnswer(invocation -> {
+            List<KnowledgeScore> rows = List.copyOf(database);
+            beforeRows.run();
+            ResultHandler<KnowledgeScore> handler = invocation.getArgument(0);
+            for (KnowledgeScore row : rows) {
+                ResultContext<KnowledgeScore> context = mock(ResultContext.class);
+                when(context.getResultObject()).thenReturn(row);
+                handler.handleResult(context);
+            }
+            return null;
+        }).when(knowledgeMasteryMapper).streamKnowledgeScores(any());
+    }
+
+    // 模拟一个批改事务：work 在事务中执行，commit 在提交前回调之后、提交后回调之前执行
+    private static void inTransaction(Runnable work, Runnable commit) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            TransactionSynchronizationUtils.triggerBeforeCommit(false);
+            commit.run();
+            TransactionSynchronizationUtils.triggerAfterCommit();
+            TransactionSynchronizationUtils.invokeAfterCompletion(TransactionSynchronizationManager.getSynchronizations(),
+                TransactionSynchronization.STATUS_COMMITTED);
+        } finally {
+            TransactionSynchronizationManager.clear();
+        }
+    }
+
+    private double weakest() {
+        List<Map<String, Object>> rows = mastery.getWeakestKnowledge(STUDENT, 1);
+        assertTrue(rows.size() == 1, "学生应有一个知识点");
+        return (double) rows.get(0).get("score");
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+        } catch (InterruptedException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
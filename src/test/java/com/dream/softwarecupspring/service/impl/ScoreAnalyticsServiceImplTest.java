@@ -0,0 +1,146 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.ScoreSketchMapper;
+import com.dream.softwarecupspring.sharding.ShardRouter;
+import com.dream.softwarecupspring.sharding.ShardScatterGather;
+import com.dream.softwarecupspring.utils.ScoreSketch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 成绩摘要的冷加载、写回和修正：数据库中的摘要只被合并，不被整体覆盖
+ */
+class ScoreAnalyticsServiceImplTest {
+
+    private static final int HOMEWORK = 1;
+
+    private ScoreSketchMapper scoreSketchMapper;
+    private ShardScatterGather scatterGather;
+    private ScoreAnalyticsServiceImpl analytics;
+
+    @BeforeEach
+    void setUp() {
+        scoreSketchMapper = mock(ScoreSketchMapper.class);
+        scatterGather = new ShardScatterGather(new DefaultListableBeanFactory().getBeanProvider(ShardRouter.class));
+        analytics = new ScoreAnalyticsServiceImpl(mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(analytics, "scoreSketchMapper", scoreSketchMapper);
+        ReflectionTestUtils.setField(analytics, "shardScatterGather", scatterGather);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scatterGather.shutdown();
+    }
+
+    @Test
+    void coldLoadFromScoresDoesNotCountTriggeringScoreTwice() {
+        // 还没有摘要；成绩表中已经包含刚提交的90分
+        when(scoreSketchMapper.getGradedScoresByHomeworkId(HOMEWORK)).thenReturn(List.of(60, 80, 90));
+
+        analytics.updateScore(HOMEWORK, null, 90);
+
+        assertEquals(3L, distribution().get("count"));
+        // 写回时只在摘要仍不存在时插入，随后加锁读到的就是插入的摘要
+        when(scoreSketchMapper.getSketchForUpdate(HOMEWORK)).thenReturn(sketchOf(60, 80, 90).toBytes());
+        analytics.flush();
+        ArgumentCaptor<byte[]> inserted = ArgumentCaptor.forClass(byte[].class);
+        verify(scoreSketchMapper).insertIfAbsent(eq(HOMEWORK), inserted.capture());
+        assertEquals(3, ScoreSketch.fromBytes(inserted.getValue()).count());
+        assertEquals(3, saved().count());
+    }
+
+    @Test
+    void coldLoadFromStoredSketchAppliesTriggeringScore() {
+        when(scoreSketchMapper.getSketchByHomeworkId(HOMEWORK)).thenReturn(sketchOf(60, 80).toBytes());
+
+        analytics.updateScore(HOMEWORK, null, 90);
+
+        assertEquals(3L, distribution().get("count"));
+        verify(scoreSketchMapper, never()).getGradedScoresByHomeworkId(any());
+    }
+
+    @Test
+    void flushMergesIntoSketchWrittenByAnotherNode() {
+        when(scoreSketchMapper.getSketchByHomeworkId(HOMEWORK)).thenReturn(sketchOf(60, 80).toBytes());
+        analytics.updateScore(HOMEWORK, 80, 85);
+        // 写回前另一个节点已经合并了一个95分
+        when(scoreSketchMapper.getSketchForUpdate(HOMEWORK)).thenReturn(sketchOf(60, 80, 95).toBytes());
+
+        analytics.flush();
+
+        ScoreSketch saved = saved();
+        assertEquals(3, saved.count());
+        assertEquals(85, saved.quantile(0.5));
+        assertEquals(95, saved.quantile(1));
+    }
+
+    @Test
+    void nodeThatLosesTheInsertKeepsOnlyLaterChanges() {
+        when(scoreSketchMapper.getGradedScoresByHomeworkId(HOMEWORK)).thenReturn(List.of(60));
+        analytics.updateScore(HOMEWORK, null, 60);
+        analytics.updateScore(HOMEWORK, null, 70);
+        // 另一个节点先插入了它从成绩表新建的摘要
+        when(scoreSketchMapper.getSketchForUpdate(HOMEWORK)).thenReturn(sketchOf(60).toBytes());
+
+        analytics.flush();
+
+        ScoreSketch saved = saved();
+        assertEquals(2, saved.count());
+        assertEquals(70, saved.quantile(1));
+    }
+
+    @Test
+    void rebuildMergesCorrectionInsteadOfOverwriting() {
+        when(scoreSketchMapper.getSketchByHomeworkId(HOMEWORK)).thenReturn(sketchOf(60, 80).toBytes());
+        when(scoreSketchMapper.getGradedScoresByHomeworkId(HOMEWORK)).thenReturn(List.of(60, 70));
+
+        analytics.rebuild(HOMEWORK);
+        assertEquals(70, distribution().get("p90"));
+
+        // 修正期间另一个节点合并了95分，写回后仍然保留
+        when(scoreSketchMapper.getSketchForUpdate(HOMEWORK)).thenReturn(sketchOf(60, 80, 95).toBytes());
+        analytics.flush();
+
+        ScoreSketch saved = saved();
+        assertEquals(3, saved.count());
+        assertEquals(70, saved.quantile(0.5));
+        assertEquals(95, saved.quantile(1));
+        assertEquals(3L, distribution().get("count"));
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private Map<String, Object> distribution() {
+        return analytics.getScoreDistribution(List.of(HOMEWORK));
+    }
+
+    private ScoreSketch saved() {
+        ArgumentCaptor<byte[]> data = ArgumentCaptor.forClass(byte[].class);
+        verify(scoreSketchMapper).saveOrUpdate(eq(HOMEWORK), data.capture());
+        return ScoreSketch.fromBytes(data.getValue());
+    }
+
+    private static ScoreSketch sketchOf(int... scores) {
+        ScoreSketch sketch = new ScoreSketch();
+        for (int score : scores) {
+            sketch.add(score);
+        }
+        return sketch;
+    }
+}
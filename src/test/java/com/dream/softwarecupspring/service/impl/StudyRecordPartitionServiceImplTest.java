@@ -0,0 +1,120 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.SchedulerLockMapper;
+import com.dream.softwarecupspring.mapper.StudyRecordPartitionMapper;
+import com.dream.softwarecupspring.pojo.StudyRecord;
+import com.dream.softwarecupspring.utils.StudyRecordArchive;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 热数据与归档文件合并分页，以及集群中只有取得租约的节点维护分区
+ */
+class StudyRecordPartitionServiceImplTest {
+
+    private static final int STUDENT = 7;
+
+    @TempDir
+    Path dir;
+
+    private StudyRecordPartitionMapper partitionMapper;
+    private SchedulerLockMapper lockMapper;
+    private StudyRecordPartitionServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        partitionMapper = mock(StudyRecordPartitionMapper.class);
+        lockMapper = mock(SchedulerLockMapper.class);
+        service = new StudyRecordPartitionServiceImpl();
+        ReflectionTestUtils.setField(service, "partitionMapper", partitionMapper);
+        ReflectionTestUtils.setField(service, "schedulerLockMapper", lockMapper);
+        ReflectionTestUtils.setField(service, "archiveDir", dir.toString());
+        ReflectionTestUtils.setField(service, "lockSeconds", 60L);
+
+        // 1、2月已归档，3月已写出归档文件但分区还没删除，仍以数据库为准
+        StudyRecordArchive.write(dir.resolve("p202501.col.gz"), month(1, 3));
+        StudyRecordArchive.write(dir.resolve("p202502.col.gz"), month(2, 4));
+        StudyRecordArchive.write(dir.resolve("p202503.col.gz"), month(3, 5));
+        when(partitionMapper.getPartitionNames("study_record")).thenReturn(List.of("p202503", "p202504", "pmax"));
+    }
+
+    @Test
+    void pagesContinueFromHotRowsIntoNewestArchive() {
+        List<StudyRecord> hot = month(3, 5);
+        hot.sort((a, b) -> b.getCreatedTime().compareTo(a.getCreatedTime()));
+        when(partitionMapper.getStudyRecords(eq(STUDENT), isNull(), isNull(), isNull(), anyInt()))
+            .thenAnswer(inv -> hot.subList(0, Math.min(hot.size(), inv.<Integer>getArgument(4))));
+        when(partitionMapper.countStudyRecords(eq(STUDENT), isNull(), isNull(), isNull())).thenReturn(hot.size());
+
+        Map<String, Object> page = service.getStudyRecords(STUDENT, null, null, null, 2, 4);
+
+        assertEquals(12, page.get("total"));
+        assertEquals(List.of(day(3, 1), day(2, 4), day(2, 3), day(2, 2)), createdTimes(page));
+    }
+
+    @Test
+    void periodFilterCountsOnlyMatchingArchivedRows() {
+        when(partitionMapper.getStudyRecords(eq(STUDENT), isNull(), any(), any(), anyInt())).thenReturn(List.of());
+        when(partitionMapper.countStudyRecords(eq(STUDENT), isNull(), any(), any())).thenReturn(0);
+
+        Map<String, Object> page = service.getStudyRecords(STUDENT, null, day(1, 2), day(2, 3), 1, 2);
+
+        // 1月2日到2月2日，共 2 + 2 条
+        assertEquals(4, page.get("total"));
+        assertEquals(List.of(day(2, 2), day(2, 1)), createdTimes(page));
+    }
+
+    @Test
+    void skipsMaintenanceWhenAnotherNodeHoldsTheLease() {
+        when(lockMapper.tryAcquire(eq("study_record_partition"), any(), anyLong())).thenReturn(0);
+
+        service.maintainPartitions();
+
+        verify(partitionMapper, never()).getPartitionNames("ai_question");
+        verify(lockMapper, never()).release(any(), any());
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private static List<StudyRecord> month(int month, int days) {
+        List<StudyRecord> rows = new ArrayList<>();
+        for (int d = 1; d <= days; d++) {
+            StudyRecord r = new StudyRecord();
+            r.setId(month * 100 + d);
+            r.setStudentId(STUDENT);
+            r.setResourceType("video");
+            r.setCreatedTime(day(month, d));
+            rows.add(r);
+        }
+        return rows;
+    }
+
+    private static LocalDateTime day(int month, int day) {
+        return LocalDateTime.of(2025, month, day, 9, 0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<LocalDateTime> createdTimes(Map<String, Object> page) {
+        return ((List<StudyRecord>) page.get("records")).stream().map(StudyRecord::getCreatedTime).toList();
+    }
+}
@@ -0,0 +1,78 @@
+package com.dream.softwarecupspring.service.impl;
+
+import com.dream.softwarecupspring.mapper.TextCompressionMapper;
+import com.dream.softwarecupspring.sharding.ShardRouter;
+import com.dream.softwarecupspring.sharding.ShardScatterGather;
+import com.dream.softwarecupspring.utils.TextCompressor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * 迁移只在列未被应用改写时写回，被改写的行计入跳过数
+ */
+class TextCompressionServiceImplTest {
+
+    private static final String TEXT = "归并排序是稳定排序，需要 O(n) 的额外空间。".repeat(6);
+
+    private TextCompressionMapper mapper;
+    private ShardScatterGather scatterGather;
+    private TextCompressionServiceImpl service;
+
+    @BeforeEach
+    void setUp() {
+        mapper = mock(TextCompressionMapper.class);
+        scatterGather = new ShardScatterGather(new DefaultListableBeanFactory().getBeanProvider(ShardRouter.class));
+        service = new TextCompressionServiceImpl(mock(PlatformTransactionManager.class));
+        ReflectionTestUtils.setField(service, "textCompressionMapper", mapper);
+        ReflectionTestUtils.setField(service, "shardScatterGather", scatterGather);
+        ReflectionTestUtils.setField(service, "enabled", true);
+        TextCompressor.setEnabled(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TextCompressor.setEnabled(false);
+        scatterGather.shutdown();
+    }
+
+    @Test
+    void rowsRewrittenDuringMigrationAreSkipped() {
+        byte[] first = TEXT.getBytes(StandardCharsets.UTF_8);
+        byte[] second = ("另一条：" + TEXT).getBytes(StandardCharsets.UTF_8);
+        byte[] migrated = TextCompressor.compress(TEXT);
+        when(mapper.getRawBatch(anyString(), anyString(), eq(0), anyInt())).thenReturn(List.of(
+            Map.of("id", 1, "data", first),
+            Map.of("id", 2, "data", second),
+            Map.of("id", 3, "data", migrated)));
+        when(mapper.updateRaw(anyString(), anyString(), eq(1), eq(first), any())).thenReturn(1);
+        when(mapper.updateRaw(anyString(), anyString(), eq(2), eq(second), any())).thenReturn(0);
+
+        Map<String, Object> report = service.migrate();
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object> content = (Map<String, Object>) report.get("student_questions.content");
+        assertEquals(1L, content.get("rows"));
+        assertEquals(1L, content.get("skipped"));
+        assertEquals((long) first.length, content.get("bytesBefore"));
+        // 已是压缩格式的行不再写回
+        verify(mapper, never()).updateRaw(anyString(), anyString(), eq(3), any(), any());
+    }
+}
@@ -0,0 +1,417 @@
+package com.dream.softwarecupspring.sharding;
+
+import com.dream.softwarecupspring.mapper.ReshardMapper;
+import com.dream.softwarecupspring.mapper.SchedulerLockMapper;
+import com.dream.softwarecupspring.mapper.ShardStateMapper;
+import com.dream.softwarecupspring.service.impl.ReshardServiceImpl;
+import com.dream.softwarecupspring.service.impl.ShardStateServiceImpl;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.plugin.Interceptor;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.mybatis.spring.SqlSessionFactoryBean;
+import org.mybatis.spring.SqlSessionTemplate;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 分片路由、跨分片查询和在线重分片的集成测试
+ * 三个 H2 内存库（MySQL 模式）按生产环境的方式组装：路由数据源 + LazyConnectionDataSourceProxy + 路由拦截器，
+ * 初始只启用前两个分片，第三个作为重分片的目标库。全局分片状态存放在分片0上，
+ * 其他节点用共用同一数据源的另一组 ShardRouter + ShardStateServiceImpl 模拟，重分片租约用 mock 代替
+ */
+class ShardingTest {
+
+    private static final int SHARDS = 3;
+    private static final int STUDENTS = 40;
+
+    private final List<DataSource> shards = new ArrayList<>();
+    private ShardRouter router;
+    private ShardScatterGather scatterGather;
+    private TransactionTemplate transactionTemplate;
+    private TestMapper testMapper;
+    private ShardStateMapper shardStateMapper;
+    private PlatformTransactionManager transactionManager;
+    private ReshardServiceImpl reshardService;
+    // 代替其他节点上的定时同步
+    private final ScheduledExecutorService otherNodes = Executors.newScheduledThreadPool(2);
+
+    @BeforeEach
+    void setUp() throws Exception {
+        String run = UUID.randomUUID().toString();
+        ResourceDatabasePopulator schema = new ResourceDatabasePopulator(new ClassPathResource("db/sharding_test.sql"));
+        Map<Object, Object> targets = new HashMap<>();
+        for (int i = 0; i < SHARDS; i++) {
+            JdbcDataSource dataSource = new JdbcDataSource();
+            dataSource.setURL("jdbc:h2:mem:shard" + i + "-" + run + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+            schema.execute(dataSource);
+            shards.add(dataSource);
+            targets.put(i, dataSource);
+        }
+        ShardRoutingDataSource routing = new ShardRoutingDataSource();
+        routing.setTargetDataSources(targets);
+        routing.setDefaultTargetDataSource(targets.get(0));
+        routing.afterPropertiesSet();
+        DataSource dataSource = new LazyConnectionDataSourceProxy(routing);
+
+        router = new ShardRouter(2);
+        SqlSessionFactoryBean factoryBean = new SqlSessionFactoryBean();
+        factoryBean.setDataSource(dataSource);
+        factoryBean.setPlugins(new Interceptor[]{new ShardRoutingInterceptor(router)});
+        factoryBean.setMapperLocations(new ClassPathResource("mapper/ReshardMapper.xml"),
+            new ClassPathResource("mapper/ShardStateMapper.xml"));
+        SqlSessionFactory sqlSessionFactory = factoryBean.getObject();
+        sqlSessionFactory.getConfiguration().addMapper(TestMapper.class);
+        SqlSessionTemplate sqlSession = new SqlSessionTemplate(sqlSessionFactory);
+        testMapper = sqlSession.getMapper(TestMapper.class);
+        shardStateMapper = sqlSession.getMapper(ShardStateMapper.class);
+
+        transactionManager = new DataSourceTransactionManager(dataSource);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+
+        DefaultListableBeanFactory beans = node(router, SHARDS);
+        scatterGather = new ShardScatterGather(beans.getBeanProvider(ShardRouter.class));
+
+        SchedulerLockMapper schedulerLockMapper = mock(SchedulerLockMapper.class);
+        when(schedulerLockMapper.tryAcquire(any(), any(), anyLong())).thenReturn(1);
+        reshardService = new ReshardServiceImpl(transactionManager);
+        ReflectionTestUtils.setField(reshardService, "shardStateService", stateService(beans, "node-a"));
+        ReflectionTestUtils.setField(reshardService, "schedulerLockMapper", schedulerLockMapper);
+        ReflectionTestUtils.setField(reshardService, "reshardMapper", sqlSession.getMapper(ReshardMapper.class));
+        ReflectionTestUtils.setField(reshardService, "shardRouter", beans.getBeanProvider(ShardRouter.class));
+        ReflectionTestUtils.setField(reshardService, "shardingProperties", beans.getBeanProvider(ShardingProperties.class));
+        ReflectionTestUtils.setField(reshardService, "drainMillis", 0L);
+        ReflectionTestUtils.setField(reshardService, "freezeTimeoutMillis", 5000L);
+
+        // 生产环境各分片的自增ID按步长错开，这里直接用互不重复的ID
+        for (int studentId = 1; studentId <= STUDENTS; studentId++) {
+            testMapper.insertQuestion(questionId(studentId), studentId, "q" + studentId);
+            testMapper.insertAnswer(1, studentId, 1, "A");
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        otherNodes.shutdownNow();
+        scatterGather.shutdown();
+    }
+
+    // ====== 路由 ======
+
+    @Test
+    void routesRowsToTheStudentsShard() {
+        for (int studentId = 1; studentId <= STUDENTS; studentId++) {
+            int home = ShardRouter.shardFor(studentId, 2);
+            for (int shard = 0; shard < SHARDS; shard++) {
+                assertEquals(shard == home ? 1 : 0, countRows(shard, "student_questions", studentId),
+                    "学生 " + studentId + " 在分片 " + shard);
+            }
+            assertEquals("q" + studentId, testMapper.getQuestion(studentId, questionId(studentId)));
+        }
+    }
+
+    @Test
+    void rejectsTransactionsSpanningShards() {
+        int first = studentOn(0, 2);
+        int second = studentOn(1, 2);
+        assertRejectedByRouting(() -> transactionTemplate.executeWithoutResult(status -> {
+            testMapper.updateQuestion(first, questionId(first), "changed");
+            testMapper.updateQuestion(second, questionId(second), "changed");
+        }));
+        // 整个事务回滚
+        assertEquals("q" + first, testMapper.getQuestion(first, questionId(first)));
+        assertNull(ShardContext.current());
+    }
+
+    @Test
+    void globalTableStatementsGoToShardZero() {
+        testMapper.saveSetting("mode", "on");
+        assertEquals(1, new JdbcTemplate(shards.get(0)).queryForObject("SELECT COUNT(*) FROM global_setting", Integer.class));
+        assertEquals(0, new JdbcTemplate(shards.get(1)).queryForObject("SELECT COUNT(*) FROM global_setting", Integer.class));
+
+        // 事务外即使固定在其他分片上也读分片0
+        assertEquals("on", ShardContext.runOn(1, () -> testMapper.getSetting("mode")));
+
+        int student = studentOn(1, 2);
+        assertRejectedByRouting(() -> transactionTemplate.executeWithoutResult(status -> {
+            testMapper.updateQuestion(student, questionId(student), "changed");
+            testMapper.getSetting("mode");
+        }));
+    }
+
+    // ====== 跨分片查询 ======
+
+    @Test
+    void gathersAcrossShards() {
+        assertEquals(STUDENTS, scatterGather.sum(testMapper::countQuestions));
+        List<String> newest = scatterGather.gatherList(testMapper::getAllQuestions, String::compareTo, 5);
+        assertEquals(5, newest.size());
+        assertEquals(List.of("q1", "q10", "q11", "q12", "q13"), newest);
+
+        int student = studentOn(1, 2);
+        assertEquals(student, scatterGather.findOwned(() -> testMapper.getOwnerById(questionId(student)), owner -> owner));
+    }
+
+    @Test
+    void gatherOwnedIgnoresStaleCopies() {
+        int student = studentOn(1, 2);
+        // 重分片中途留在其他分片上的旧副本
+        new JdbcTemplate(shards.get(0)).update(
+            "INSERT INTO student_answers (homework_id, student_id, question_id, answer) VALUES (1, ?, 1, 'stale')", student);
+
+        List<Map<String, Object>> rows = scatterGather.gatherOwned(testMapper::getAllAnswers,
+            row -> ((Number) row.get("student_id")).intValue());
+        assertEquals(STUDENTS, rows.size());
+        assertTrue(rows.stream().noneMatch(row -> "stale".equals(row.get("answer"))));
+    }
+
+    // ====== 重分片 ======
+
+    @Test
+    void reshardMovesStudentsWithoutLosingConcurrentWrites() throws Exception {
+        int writer = studentMoving(2, 3);
+        AtomicBoolean stop = new AtomicBoolean();
+        AtomicInteger lastWritten = new AtomicInteger(-1);
+        AtomicInteger lostWrites = new AtomicInteger();
+        CompletableFuture<Void> writes = CompletableFuture.runAsync(() -> {
+            for (int i = 0; !stop.get(); i++) {
+                int version = i;
+                int updated = transactionTemplate.execute(status ->
+                    testMapper.updateQuestion(writer, questionId(writer), "v" + version));
+                if (updated == 1) {
+                    lastWritten.set(version);
+                } else {
+                    lostWrites.incrementAndGet();
+                }
+            }
+        });
+        while (lastWritten.get() < 0) {
+            Thread.sleep(1);
+        }
+
+        Map<String, Object> result = reshardService.reshard(3);
+        stop.set(true);
+        writes.get();
+
+        assertEquals(3, router.shardCount());
+        assertNull(router.migrationTarget());
+        assertEquals(0, lostWrites.get());
+        assertEquals("v" + lastWritten.get(), testMapper.getQuestion(writer, questionId(writer)));
+        assertTrue((Integer) result.get("movedStudents") > 0);
+        for (int studentId = 1; studentId <= STUDENTS; studentId++) {
+            int home = ShardRouter.shardFor(studentId, 3);
+            for (int shard = 0; shard < SHARDS; shard++) {
+                assertEquals(shard == home ? 1 : 0, countRows(shard, "student_questions", studentId));
+                assertEquals(shard == home ? 1 : 0, countRows(shard, "student_answers", studentId));
+            }
+        }
+        assertEquals(STUDENTS, scatterGather.sum(testMapper::countQuestions));
+    }
+
+    @Test
+    void reshardStopsOnIdConflictAndResumes() {
+        int student = studentMoving(2, 3);
+        int target = ShardRouter.shardFor(student, 3);
+        JdbcTemplate targetDb = new JdbcTemplate(shards.get(target));
+        targetDb.update("INSERT INTO student_questions (id, student_id, question) VALUES (?, ?, ?)",
+            questionId(student), 9999, "其他学生的行");
+
+        assertThrows(IllegalStateException.class, () -> reshardService.reshard(3));
+        // 冲突的行没有被覆盖，学生仍在原分片上可读写
+        assertEquals("其他学生的行", targetDb.queryForObject(
+            "SELECT question FROM student_questions WHERE student_id = 9999", String.class));
+        assertEquals(3, router.migrationTarget());
+        assertEquals(1, testMapper.updateQuestion(student, questionId(student), "still writable"));
+        assertThrows(IllegalStateException.class, () -> reshardService.reshard(1));
+
+        targetDb.update("DELETE FROM student_questions WHERE student_id = 9999");
+        reshardService.reshard(3);
+        assertEquals(3, router.shardCount());
+        assertEquals("still writable", testMapper.getQuestion(student, questionId(student)));
+        assertEquals(1, countRows(target, "student_questions", student));
+    }
+
+    // ====== 全局分片状态 ======
+
+    @Test
+    void otherNodesFollowThePersistedShardCount() {
+        ShardRouter other = new ShardRouter(2);
+        ShardStateServiceImpl otherState = stateService(node(other, SHARDS), "node-b");
+        otherNodes.scheduleWithFixedDelay(otherState::refresh, 0, 10, TimeUnit.MILLISECONDS);
+
+        reshardService.reshard(3);
+        otherState.refresh();
+
+        assertEquals(3, other.shardCount());
+        assertNull(other.migrationTarget());
+        // 按旧配置启动的节点以全局状态为准
+        ShardRouter restarted = new ShardRouter(2);
+        stateService(node(restarted, SHARDS), "node-c");
+        assertEquals(3, restarted.shardCount());
+    }
+
+    @Test
+    void nodeMissingShardsRefusesWrites() {
+        ShardRouter other = new ShardRouter(2);
+        ShardStateServiceImpl otherState = stateService(node(other, 2), "node-b");
+        otherNodes.scheduleWithFixedDelay(otherState::refresh, 0, 10, TimeUnit.MILLISECONDS);
+        assertFalse(other.beginWrite(1));
+
+        // 暂停写入的节点不会妨碍迁移，迁移完成后仍需补上分片配置才能写入
+        reshardService.reshard(3);
+        otherState.refresh();
+        assertEquals(3, router.shardCount());
+        assertThrows(IllegalStateException.class, () -> other.beginWrite(1));
+    }
+
+    @Test
+    void freezeWaitsForLiveNodes() {
+        // 在线但停在旧版本的节点
+        shardStateMapper.saveNodeVersion("node-b", 0L);
+        ReflectionTestUtils.setField(reshardService, "freezeTimeoutMillis", 200L);
+
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> reshardService.reshard(3));
+        assertTrue(e.getMessage().contains("node-b"));
+        // 迁移已开始，本节点的学生仍可写入
+        assertEquals(3, router.migrationTarget());
+        int student = studentMoving(2, 3);
+        assertEquals(1, testMapper.updateQuestion(student, questionId(student), "still writable"));
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private static DefaultListableBeanFactory node(ShardRouter router, int configuredShards) {
+        DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+        beans.registerSingleton("shardRouter", router);
+        ShardingProperties properties = new ShardingProperties();
+        for (int i = 0; i < configuredShards; i++) {
+            properties.getShards().add(new ShardingProperties.Shard());
+        }
+        beans.registerSingleton("shardingProperties", properties);
+        return beans;
+    }
+
+    private ShardStateServiceImpl stateService(DefaultListableBeanFactory beans, String nodeId) {
+        ShardStateServiceImpl service = new ShardStateServiceImpl(transactionManager);
+        ReflectionTestUtils.setField(service, "shardStateMapper", shardStateMapper);
+        ReflectionTestUtils.setField(service, "shardRouter", beans.getBeanProvider(ShardRouter.class));
+        ReflectionTestUtils.setField(service, "shardingProperties", beans.getBeanProvider(ShardingProperties.class));
+        ReflectionTestUtils.setField(service, "nodeId", nodeId);
+        ReflectionTestUtils.setField(service, "validMillis", 60_000L);
+        ReflectionTestUtils.setField(service, "nodeTimeoutMillis", 120_000L);
+        service.init();
+        return service;
+    }
+
+    // 拦截器抛出的异常经 MyBatis 包装后抛给调用方
+    private static void assertRejectedByRouting(Executable action) {
+        RuntimeException e = assertThrows(RuntimeException.class, action);
+        assertInstanceOf(IllegalStateException.class, NestedExceptionUtils.getMostSpecificCause(e));
+    }
+
+    private static int questionId(int studentId) {
+        return 1000 + studentId;
+    }
+
+    private int countRows(int shard, String table, int studentId) {
+        return new JdbcTemplate(shards.get(shard))
+            .queryForObject("SELECT COUNT(*) FROM " + table + " WHERE student_id = ?", Integer.class, studentId);
+    }
+
+    private static int studentOn(int shard, int shardCount) {
+        for (int studentId = 1; studentId <= STUDENTS; studentId++) {
+            if (ShardRouter.shardFor(studentId, shardCount) == shard) {
+                return studentId;
+            }
+        }
+        throw new IllegalStateException("没有学生落在分片 " + shard);
+    }
+
+    private static int studentMoving(int oldShardCount, int newShardCount) {
+        for (int studentId = 1; studentId <= STUDENTS; studentId++) {
+            if (ShardRouter.shardFor(studentId, oldShardCount) != ShardRouter.shardFor(studentId, newShardCount)) {
+                return studentId;
+            }
+        }
+        throw new IllegalStateException("没有需要搬迁的学生");
+    }
+
+    /**
+     * 测试用Mapper，语句带 studentId 参数时由拦截器路由
+     */
+    public interface TestMapper {
+
+        @Insert("INSERT INTO student_questions (id, student_id, question) VALUES (#{id}, #{studentId}, #{question})")
+        void insertQuestion(@Param("id") Integer id, @Param("studentId") Integer studentId, @Param("question") String question);
+
+        @Insert("INSERT INTO student_answers (homework_id, student_id, question_id, answer) "
+            + "VALUES (#{homeworkId}, #{studentId}, #{questionId}, #{answer})")
+        void insertAnswer(@Param("homeworkId") Integer homeworkId, @Param("studentId") Integer studentId,
+                          @Param("questionId") Integer questionId, @Param("answer") String answer);
+
+        @Update("UPDATE student_questions SET question = #{question} WHERE student_id = #{studentId} AND id = #{id}")
+        int updateQuestion(@Param("studentId") Integer studentId, @Param("id") Integer id, @Param("question") String question);
+
+        @Select("SELECT question FROM student_questions WHERE student_id = #{studentId} AND id = #{id}")
+        String getQuestion(@Param("studentId") Integer studentId, @Param("id") Integer id);
+
+        @Select("SELECT student_id FROM student_questions WHERE id = #{id}")
+        Integer getOwnerById(@Param("id") Integer id);
+
+        @Select("SELECT COUNT(*) FROM student_questions")
+        Integer countQuestions();
+
+        @Select("SELECT question FROM student_questions")
+        List<String> getAllQuestions();
+
+        @Select("SELECT student_id, answer FROM student_answers")
+        List<Map<String, Object>> getAllAnswers();
+
+        @GlobalTable
+        @Insert("INSERT INTO global_setting (name, setting_value) VALUES (#{name}, #{value})")
+        void saveSetting(@Param("name") String name, @Param("value") String value);
+
+        @GlobalTable
+        @Select("SELECT setting_value FROM global_setting WHERE name = #{name}")
+        String getSetting(@Param("name") String name);
+    }
+}
@@ -0,0 +1,104 @@
+package com.dream.softwarecupspring.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HyperLogLogTest {
+
+    // 标准误差约0.8%，取4倍标准误差作为允许范围
+    private static final double TOLERANCE = 0.033;
+
+    @Test
+    void emptyEstimatesZero() {
+        assertEquals(0, new HyperLogLog().estimate());
+    }
+
+    @Test
+    void smallCardinalityIsNearlyExact() {
+        HyperLogLog hll = sequence(1, 1000);
+        assertWithin(1000, hll.estimate(), 0.01);
+    }
+
+    @Test
+    void estimatesStayWithinErrorBound() {
+        HyperLogLog hll = new HyperLogLog();
+        long added = 0;
+        for (long target : new long[]{10_000, 50_000, 200_000, 1_000_000}) {
+            for (; added < target; added++) {
+                hll.add(added * 7919 + 13);
+            }
+            assertWithin(target, hll.estimate(), TOLERANCE);
+        }
+    }
+
+    @Test
+    void duplicatesDoNotCount() {
+        HyperLogLog hll = sequence(1, 20_000);
+        long before = hll.estimate();
+        for (int round = 0; round < 3; round++) {
+            for (long id = 1; id <= 20_000; id++) {
+                hll.add(id);
+            }
+        }
+        assertEquals(before, hll.estimate());
+    }
+
+    @Test
+    void mergeEstimatesUnion() {
+        // 两天的活跃用户有一半重叠
+        HyperLogLog monday = sequence(1, 100_000);
+        HyperLogLog tuesday = sequence(50_001, 150_000);
+        monday.merge(tuesday);
+        assertWithin(150_000, monday.estimate(), TOLERANCE);
+    }
+
+    @Test
+    void mergeMatchesAddingEverything() {
+        HyperLogLog a = sequence(1, 30_000);
+        HyperLogLog b = sequence(20_001, 60_000);
+        HyperLogLog ab = sequence(1, 30_000);
+        ab.merge(b);
+        HyperLogLog ba = sequence(20_001, 60_000);
+        ba.merge(a);
+
+        assertArrayEquals(sequence(1, 60_000).toBytes(), ab.toBytes());
+        assertArrayEquals(ab.toBytes(), ba.toBytes());
+        // 重复合并不改变结果
+        ab.merge(b);
+        assertArrayEquals(ba.toBytes(), ab.toBytes());
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        HyperLogLog hll = sequence(1, 5_000);
+        HyperLogLog copy = HyperLogLog.fromBytes(hll.toBytes());
+        assertEquals(hll.estimate(), copy.estimate());
+        copy.add(10_000_000);
+        assertArrayEquals(sequence(1, 5_000).toBytes(), hll.toBytes());
+    }
+
+    @Test
+    void rejectsWrongLength() {
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[10]));
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(null));
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private static HyperLogLog sequence(long from, long to) {
+        HyperLogLog hll = new HyperLogLog();
+        for (long id = from; id <= to; id++) {
+            hll.add(id);
+        }
+        return hll;
+    }
+
+    private static void assertWithin(long expected, long actual, double tolerance) {
+        double error = Math.abs(actual - expected) / (double) expected;
+        assertTrue(error <= tolerance, "估计值 " + actual + " 与 " + expected + " 相差 " + error);
+    }
+}
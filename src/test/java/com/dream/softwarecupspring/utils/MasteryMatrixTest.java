@@ -0,0 +1,111 @@
+package com.dream.softwarecupspring.utils;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MasteryMatrixTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void weakestKnowledgeIsPerStudent() {
+        MasteryMatrix matrix = new MasteryMatrix();
+        matrix.add(1, "排序", 8, 10);
+        matrix.add(1, "递归", 3, 10);
+        matrix.add(1, "递归", 2, 10);
+        matrix.add(2, "排序", 1, 10);
+
+        List<MasteryMatrix.Ranked<String>> weakest = matrix.weakestKnowledge(1, 5);
+        assertEquals(List.of("递归", "排序"), weakest.stream().map(MasteryMatrix.Ranked::key).toList());
+        assertEquals(25f, weakest.get(0).value(), 1e-4);
+        // 没作答过的学生没有结果
+        assertTrue(matrix.weakestKnowledge(3, 5).isEmpty());
+    }
+
+    @Test
+    void topKnowledgeAveragesOverStudentsWhoAnswered() {
+        MasteryMatrix matrix = new MasteryMatrix();
+        matrix.add(1, "排序", 10, 10);
+        matrix.add(2, "排序", 5, 10);
+        matrix.add(1, "递归", 9, 10);
+
+        List<MasteryMatrix.Ranked<String>> top = matrix.topKnowledge(1, false);
+        assertEquals(1, top.size());
+        assertEquals("递归", top.get(0).key());
+        assertEquals(75f, matrix.topKnowledge(2, true).get(0).value(), 1e-4);
+    }
+
+    @Test
+    void negativeDeltasUndoEarlierScores() {
+        MasteryMatrix matrix = new MasteryMatrix();
+        matrix.add(1, "排序", 2, 10);
+        // 改分：扣除旧得分加入新得分，满分不变
+        matrix.add(1, "排序", -2 + 9, 0);
+        assertEquals(90f, matrix.weakestKnowledge(1, 1).get(0).value(), 1e-4);
+    }
+
+    @Test
+    void distributionBucketsCells() {
+        MasteryMatrix matrix = new MasteryMatrix();
+        matrix.add(1, "排序", 10, 10);
+        matrix.add(2, "排序", 4, 10);
+        matrix.add(2, "递归", 45, 100);
+
+        int[] all = matrix.distribution(null, 10);
+        assertEquals(11, all.length);
+        assertEquals(2, all[4]);
+        assertEquals(1, all[10]);
+        assertArrayEquals(new int[11], matrix.distribution("不存在", 10));
+        assertEquals(1, matrix.distribution("递归", 10)[4]);
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        MasteryMatrix matrix = new MasteryMatrix();
+        for (int student = 1; student <= 200; student++) {
+            for (int k = 0; k < 40; k++) {
+                matrix.add(student, "知识点" + k, student % 10, 10);
+            }
+        }
+        assertEquals(90f, matrix.weakestKnowledge(9, 1).get(0).value(), 1e-4);
+        assertEquals(0f, matrix.weakestKnowledge(200, 1).get(0).value(), 1e-4);
+        assertEquals(40, matrix.topKnowledge(100, false).size());
+    }
+
+    @Test
+    void snapshotRoundTrip() throws IOException {
+        MasteryMatrix matrix = new MasteryMatrix();
+        for (int student = 1; student <= 100; student++) {
+            matrix.add(student, "排序", student % 7, 10);
+            matrix.add(student, "动态规划", 3, 5);
+        }
+        Path file = dir.resolve("mastery.snapshot");
+        matrix.snapshot(file);
+
+        MasteryMatrix restored = MasteryMatrix.restore(file);
+        assertEquals(matrix.topKnowledge(10, false), restored.topKnowledge(10, false));
+        assertEquals(matrix.weakestKnowledge(42, 10), restored.weakestKnowledge(42, 10));
+        assertArrayEquals(matrix.distribution(null, 10), restored.distribution(null, 10));
+        // 恢复后可以继续累加
+        restored.add(101, "排序", 10, 10);
+        assertEquals(100f, restored.weakestKnowledge(101, 1).get(0).value(), 1e-4);
+    }
+
+    @Test
+    void restoreRejectsOtherFiles() throws IOException {
+        Path file = dir.resolve("other.bin");
+        Files.write(file, new byte[16]);
+        assertThrows(IOException.class, () -> MasteryMatrix.restore(file));
+    }
+}
@@ -0,0 +1,108 @@
+package com.dream.softwarecupspring.utils;
+
+import com.dream.softwarecupspring.pojo.AnswerKey;
+import com.dream.softwarecupspring.pojo.StudentAnswer;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ObjectiveGraderTest {
+
+    @Test
+    void singleChoiceIgnoresCaseAndFullWidth() {
+        AnswerKey key = new AnswerKey(1, "single", "B", 5, null);
+        assertEquals(5, ObjectiveGrader.grade(key, "b"));
+        assertEquals(5, ObjectiveGrader.grade(key, "Ｂ"));
+        assertEquals(0, ObjectiveGrader.grade(key, "C"));
+    }
+
+    @Test
+    void multipleChoiceGivesHalfForMissingOptionsOnly() {
+        AnswerKey key = new AnswerKey(1, "multiple", "ACD", 4, null);
+        assertEquals(4, ObjectiveGrader.grade(key, "D,C,A"));
+        assertEquals(2, ObjectiveGrader.grade(key, "AC"));
+        // 有错选不得分
+        assertEquals(0, ObjectiveGrader.grade(key, "ABC"));
+    }
+
+    @Test
+    void judgeAcceptsSynonyms() {
+        AnswerKey key = new AnswerKey(1, "judge", "对", 2, null);
+        assertEquals(2, ObjectiveGrader.grade(key, "正确"));
+        assertEquals(2, ObjectiveGrader.grade(key, " true "));
+        assertEquals(0, ObjectiveGrader.grade(key, "×"));
+        assertEquals(0, ObjectiveGrader.grade(key, "不确定"));
+    }
+
+    @Test
+    void fillNormalizesWhitespaceAndAcceptsAlternatives() {
+        AnswerKey key = new AnswerKey(1, "fill", "O(n log n)|O(nlogn)", 3, null);
+        assertEquals(3, ObjectiveGrader.grade(key, "  o(N   LOG n) "));
+        assertEquals(3, ObjectiveGrader.grade(key, "O（nlogn）"));
+        assertEquals(0, ObjectiveGrader.grade(key, "O(n^2)"));
+    }
+
+    @Test
+    void blankAnswerScoresZeroAndSubjectiveIsNotGraded() {
+        assertEquals(0, ObjectiveGrader.grade(new AnswerKey(1, "single", "A", 5, null), "  "));
+        assertNull(ObjectiveGrader.grade(new AnswerKey(1, "short", "参考答案", 5, null), "参考答案"));
+        assertNull(ObjectiveGrader.grade(new AnswerKey(1, "single", null, 5, null), "A"));
+    }
+
+    @Test
+    void submissionWithUngradedSubjectiveIsPending() {
+        Map<Integer, AnswerKey> keys = keys();
+        List<StudentAnswer> submission = List.of(
+            new StudentAnswer(1, 7, 1, "A", null),
+            new StudentAnswer(1, 7, 2, "错", null),
+            new StudentAnswer(1, 7, 3, "学生作答", null));
+
+        ObjectiveGrader.SubmissionResult result = ObjectiveGrader.gradeSubmission(keys, submission);
+
+        assertTrue(result.pending());
+        assertEquals(5, result.total());
+        assertEquals(2, result.scored().size());
+    }
+
+    @Test
+    void submissionKeepsTeacherScoreForSubjective() {
+        Map<Integer, AnswerKey> keys = keys();
+        List<StudentAnswer> submission = List.of(
+            new StudentAnswer(1, 7, 1, "A", 0),
+            new StudentAnswer(1, 7, 2, "对", null),
+            new StudentAnswer(1, 7, 3, "学生作答", 8));
+
+        ObjectiveGrader.SubmissionResult result = ObjectiveGrader.gradeSubmission(keys, submission);
+
+        // 客观题按标准答案重新判分，覆盖表中的旧分数
+        assertFalse(result.pending());
+        assertEquals(5 + 2 + 8, result.total());
+        assertEquals(5, submission.get(0).getScore());
+    }
+
+    @Test
+    void unansweredObjectiveQuestionAddsNothing() {
+        ObjectiveGrader.SubmissionResult result = ObjectiveGrader.gradeSubmission(keys(),
+            List.of(new StudentAnswer(1, 7, 3, "学生作答", 6)));
+        assertFalse(result.pending());
+        assertEquals(6, result.total());
+        assertTrue(result.scored().isEmpty());
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private static Map<Integer, AnswerKey> keys() {
+        Map<Integer, AnswerKey> keys = new LinkedHashMap<>();
+        keys.put(1, new AnswerKey(1, "single", "A", 5, "排序"));
+        keys.put(2, new AnswerKey(2, "judge", "对", 2, "排序"));
+        keys.put(3, new AnswerKey(3, "short", "参考答案", 10, "复杂度"));
+        return keys;
+    }
+}
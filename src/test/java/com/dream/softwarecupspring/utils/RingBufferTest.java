@@ -0,0 +1,58 @@
+package com.dream.softwarecupspring.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RingBufferTest {
+
+    @Test
+    void keepsNewestItemsWhenFull() {
+        RingBuffer<Integer> buffer = new RingBuffer<>(3);
+        for (int i = 1; i <= 5; i++) {
+            buffer.add(i);
+        }
+        assertEquals(List.of(5, 4, 3), buffer.latest(10));
+        assertEquals(List.of(5, 4), buffer.latest(2));
+        assertEquals(List.of(), buffer.latest(-1));
+    }
+
+    @Test
+    void replacesNewestMatchingItem() {
+        RingBuffer<String> buffer = new RingBuffer<>(4);
+        buffer.add("a1");
+        buffer.add("b1");
+        buffer.add("a2");
+        buffer.add("c1");
+        // 只移除最新的一个 a，其余元素保持顺序
+        buffer.addReplacing("a3", item -> item.startsWith("a"));
+        assertEquals(List.of("a3", "c1", "b1", "a1"), buffer.latest(10));
+    }
+
+    @Test
+    void replacingAcrossWrapAround() {
+        RingBuffer<String> buffer = new RingBuffer<>(3);
+        buffer.add("x");
+        buffer.add("a");
+        buffer.add("y");
+        buffer.add("z");     // 覆盖 x，写入位置回绕
+        buffer.addReplacing("a2", "a"::equals);
+        assertEquals(List.of("a2", "z", "y"), buffer.latest(10));
+    }
+
+    @Test
+    void addsWhenNothingMatches() {
+        RingBuffer<String> buffer = new RingBuffer<>(2);
+        buffer.add("a");
+        buffer.addReplacing("b", "c"::equals);
+        assertEquals(List.of("b", "a"), buffer.latest(10));
+    }
+
+    @Test
+    void rejectsEmptyCapacity() {
+        assertThrows(IllegalArgumentException.class, () -> new RingBuffer<>(0));
+    }
+}
@@ -0,0 +1,91 @@
+package com.dream.softwarecupspring.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ScoreSketchTest {
+
+    @Test
+    void quantilesAreExact() {
+        ScoreSketch sketch = sketchOf(10, 20, 30, 40, 50, 60, 70, 80, 90, 100);
+        assertEquals(10, sketch.count());
+        assertEquals(10, sketch.quantile(0));
+        assertEquals(10, sketch.quantile(0.1));
+        assertEquals(50, sketch.quantile(0.5));
+        assertEquals(90, sketch.quantile(0.9));
+        assertEquals(100, sketch.quantile(1));
+        assertEquals(55.0, sketch.mean(), 1e-9);
+    }
+
+    @Test
+    void quantileSkipsEmptyScores() {
+        ScoreSketch sketch = sketchOf(0, 0, 95);
+        assertEquals(0, sketch.quantile(0.5));
+        assertEquals(95, sketch.quantile(0.9));
+        assertNull(new ScoreSketch().quantile(0.5));
+    }
+
+    @Test
+    void percentileRankCountsStrictlyLowerScores() {
+        ScoreSketch sketch = sketchOf(60, 70, 70, 80);
+        assertEquals(0.0, sketch.percentileRank(60), 1e-9);
+        assertEquals(25.0, sketch.percentileRank(70), 1e-9);
+        assertEquals(75.0, sketch.percentileRank(80), 1e-9);
+        assertEquals(100.0, sketch.percentileRank(150), 1e-9);
+    }
+
+    @Test
+    void scoresAbove100GrowAndAreClamped() {
+        ScoreSketch sketch = sketchOf(150, 5000, -3);
+        assertEquals(3, sketch.count());
+        assertEquals(0, sketch.quantile(0.1));
+        assertEquals(150, sketch.quantile(0.5));
+        assertEquals(ScoreSketch.MAX_SCORE, sketch.quantile(1));
+    }
+
+    @Test
+    void mergeAddsCountsAndSubtractUndoesIt() {
+        ScoreSketch a = sketchOf(60, 70);
+        ScoreSketch b = sketchOf(70, 90, 120);
+        a.merge(b);
+        assertEquals(5, a.count());
+        assertEquals(70, a.quantile(0.5));
+        assertEquals(120, a.quantile(1));
+
+        a.subtract(b);
+        assertEquals(2, a.count());
+        assertEquals(70, a.quantile(1));
+    }
+
+    @Test
+    void subtractStopsAtZero() {
+        ScoreSketch a = sketchOf(60);
+        a.subtract(sketchOf(60, 60, 80));
+        assertEquals(0, a.count());
+        a.remove(60);
+        assertEquals(0, a.count());
+    }
+
+    @Test
+    void bytesRoundTrip() {
+        ScoreSketch sketch = sketchOf(0, 59, 59, 100, 480);
+        ScoreSketch copy = ScoreSketch.fromBytes(sketch.toBytes());
+        assertEquals(sketch.count(), copy.count());
+        for (double q = 0; q <= 1; q += 0.1) {
+            assertEquals(sketch.quantile(q), copy.quantile(q));
+        }
+        assertEquals(0, ScoreSketch.fromBytes(null).count());
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private static ScoreSketch sketchOf(int... scores) {
+        ScoreSketch sketch = new ScoreSketch();
+        for (int score : scores) {
+            sketch.add(score);
+        }
+        return sketch;
+    }
+}
@@ -0,0 +1,143 @@
+package com.dream.softwarecupspring.utils;
+
+import com.dream.softwarecupspring.pojo.StudyRecord;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StudyRecordArchiveTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2025, 3, 1, 8, 0);
+    private static final String[] TYPES = {"courseware", "video", "document"};
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void roundTripsEveryColumn() throws IOException {
+        List<StudyRecord> records = records(50, 20, new Random(7));
+        Path file = dir.resolve("p202503.col.gz");
+        StudyRecordArchive.write(file, records);
+
+        List<StudyRecord> read = StudyRecordArchive.read(file, null, r -> true);
+        assertEquals(sorted(records), sorted(read));
+        assertEquals(records.size(), StudyRecordArchive.count(file, null));
+    }
+
+    @Test
+    void readsOnlyTheRequestedStudentInCreatedOrder() throws IOException {
+        List<StudyRecord> records = records(30, 15, new Random(11));
+        Path file = dir.resolve("p202503.col.gz");
+        StudyRecordArchive.write(file, records);
+
+        List<StudyRecord> expected = records.stream()
+            .filter(r -> Integer.valueOf(12).equals(r.getStudentId()))
+            .sorted(Comparator.comparing(StudyRecord::getCreatedTime))
+            .toList();
+        assertEquals(expected, StudyRecordArchive.read(file, 12, r -> true));
+        assertEquals(expected.size(), StudyRecordArchive.count(file, 12));
+        assertEquals(List.of(), StudyRecordArchive.read(file, 999, r -> true));
+        assertEquals(0, StudyRecordArchive.count(file, 999));
+    }
+
+    @Test
+    void indexHasOneBlockPerStudent() throws IOException {
+        Path file = dir.resolve("p202503.col.gz");
+        StudyRecordArchive.write(file, records(10, 5, new Random(3)));
+
+        List<StudyRecordArchive.Block> index = StudyRecordArchive.index(file);
+        assertEquals(10, index.size());
+        assertEquals(50, index.stream().mapToInt(StudyRecordArchive.Block::rows).sum());
+        // 块在数据区中首尾相接
+        for (int i = 1; i < index.size(); i++) {
+            assertEquals(index.get(i - 1).offset() + index.get(i - 1).length(), index.get(i).offset());
+        }
+    }
+
+    @Test
+    void keepsNullsAndAppliesFilter() throws IOException {
+        StudyRecord blank = new StudyRecord();
+        StudyRecord video = record(1, 2, "video", BASE);
+        StudyRecord doc = record(2, 2, "document", BASE.plusDays(1));
+        Path file = dir.resolve("p202503.col.gz");
+        StudyRecordArchive.write(file, List.of(doc, blank, video));
+
+        assertEquals(List.of(blank, video, doc), StudyRecordArchive.read(file, null, r -> true));
+        assertEquals(List.of(doc), StudyRecordArchive.read(file, 2, r -> "document".equals(r.getResourceType())));
+    }
+
+    @Test
+    void emptyArchive() throws IOException {
+        Path file = dir.resolve("p202503.col.gz");
+        StudyRecordArchive.write(file, List.of());
+        assertEquals(List.of(), StudyRecordArchive.read(file, null, r -> true));
+        assertEquals(0, StudyRecordArchive.count(file, null));
+    }
+
+    @Test
+    void unfinishedWriterLeavesNoFiles() throws IOException {
+        Path file = dir.resolve("p202503.col.gz");
+        try (StudyRecordArchive.Writer writer = new StudyRecordArchive.Writer(file)) {
+            writer.append(record(1, 1, "video", BASE));
+        }
+        try (Stream<Path> files = Files.list(dir)) {
+            assertFalse(files.findAny().isPresent());
+        }
+    }
+
+    @Test
+    void rejectsForeignFiles() throws IOException {
+        Path file = dir.resolve("p202503.col.gz");
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12});
+        IOException e = assertThrows(IOException.class, () -> StudyRecordArchive.read(file, null, r -> true));
+        assertTrue(e.getMessage().contains("格式不正确"));
+    }
+
+    // ==================== 私有辅助方法 ====================
+
+    private static List<StudyRecord> records(int students, int perStudent, Random random) {
+        List<StudyRecord> records = new ArrayList<>();
+        int id = 1;
+        for (int s = 1; s <= students; s++) {
+            for (int i = 0; i < perStudent; i++) {
+                LocalDateTime created = BASE.plusMinutes(random.nextInt(60 * 24 * 30));
+                StudyRecord r = record(id++, s, TYPES[random.nextInt(TYPES.length)], created);
+                r.setResourceId(random.nextInt(100));
+                r.setStudyDuration(random.nextBoolean() ? random.nextInt(3600) : null);
+                r.setProgress(random.nextInt(101));
+                r.setStartTime(created.minusMinutes(10));
+                r.setEndTime(random.nextBoolean() ? created : null);
+                r.setUpdatedTime(created.plusSeconds(5));
+                records.add(r);
+            }
+        }
+        return records;
+    }
+
+    private static StudyRecord record(int id, Integer studentId, String type, LocalDateTime created) {
+        StudyRecord r = new StudyRecord();
+        r.setId(id);
+        r.setStudentId(studentId);
+        r.setResourceType(type);
+        r.setCreatedTime(created);
+        return r;
+    }
+
+    private static List<StudyRecord> sorted(List<StudyRecord> records) {
+        return records.stream().sorted(Comparator.comparing(StudyRecord::getId)).toList();
+    }
+}
@@ -0,0 +1,86 @@
+package com.dream.softwarecupspring.utils;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextCompressorTest {
+
+    private static final String LONG_TEXT = "快速排序的平均时间复杂度是 O(n log n)，最坏情况下退化为 O(n^2)。".repeat(8);
+
+    @AfterEach
+    void tearDown() {
+        TextCompressor.setEnabled(false);
+        TextCompressor.setDictionaryLoader(id -> null);
+    }
+
+    @Test
+    void disabledWritesPlainUtf8() {
+        byte[] data = TextCompressor.compress(LONG_TEXT);
+        assertArrayEquals(LONG_TEXT.getBytes(StandardCharsets.UTF_8), data);
+        assertEquals(LONG_TEXT, TextCompressor.decompress(data));
+    }
+
+    @Test
+    void disabledTextStartingWithHeaderByteRoundTrips() {
+        // 首字节与格式标记相同的原文必须加头，否则读回时会被当成已压缩的数据
+        for (String text : List.of("\u0000abc", "\u0001" + LONG_TEXT, "\u0001")) {
+            byte[] data = TextCompressor.compress(text);
+            assertEquals(0x00, data[0]);
+            assertEquals(text, TextCompressor.decompress(data));
+        }
+    }
+
+    @Test
+    void enabledRoundTripsShortAndLongText() {
+        TextCompressor.setEnabled(true);
+        for (String text : List.of("", "短文本", "\u0001x", LONG_TEXT)) {
+            assertEquals(text, TextCompressor.decompress(TextCompressor.compress(text)));
+        }
+        byte[] compressed = TextCompressor.compress(LONG_TEXT);
+        assertEquals(0x01, compressed[0]);
+        assertTrue(compressed.length < LONG_TEXT.getBytes(StandardCharsets.UTF_8).length / 2);
+    }
+
+    @Test
+    void readsLegacyRowsWithoutHeader() {
+        assertEquals("迁移前的文本", TextCompressor.decompress("迁移前的文本".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("", TextCompressor.decompress(new byte[0]));
+        assertNull(TextCompressor.decompress(null));
+    }
+
+    @Test
+    void dictionaryRoundTripAndLazyLoad() {
+        List<String> samples = new ArrayList<>();
+        for (int i = 0; i < 60; i++) {
+            samples.add("学生 " + i + " 的回答：" + LONG_TEXT);
+        }
+        byte[] dictionary = TextCompressor.trainDictionary(samples);
+        assertTrue(dictionary.length > 0);
+
+        TextCompressor.setEnabled(true);
+        TextCompressor.registerDictionary(101, dictionary, true);
+        byte[] compressed = TextCompressor.compress(samples.get(7));
+        assertEquals(101, ((compressed[1] & 0xFF) << 8) | (compressed[2] & 0xFF));
+        assertEquals(samples.get(7), TextCompressor.decompress(compressed));
+
+        // 其他节点训练的字典：本节点没有注册过，读取时通过加载器取得
+        byte[] foreign = compressed.clone();
+        foreign[2] = 102;
+        TextCompressor.setDictionaryLoader(id -> id == 102 ? dictionary : null);
+        assertEquals(samples.get(7), TextCompressor.decompress(foreign));
+
+        foreign[2] = 103;
+        IllegalStateException e = assertThrows(IllegalStateException.class, () -> TextCompressor.decompress(foreign));
+        assertTrue(e.getMessage().contains("103"));
+    }
+}
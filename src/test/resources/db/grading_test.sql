@@ -0,0 +1,32 @@
+-- 自动批改测试用的表结构，只保留批改用到的列
+CREATE TABLE questions (
+    id        INT PRIMARY KEY,
+    type      VARCHAR(32),
+    answer    VARCHAR(255),
+    knowledge VARCHAR(64)
+);
+
+CREATE TABLE homework_questions (
+    homework_id INT NOT NULL,
+    question_id INT NOT NULL,
+    score       INT,
+    PRIMARY KEY (homework_id, question_id)
+);
+
+CREATE TABLE student_homework (
+    id           INT AUTO_INCREMENT PRIMARY KEY,
+    homework_id  INT NOT NULL,
+    student_id   INT NOT NULL,
+    score        INT,
+    status       INT,
+    updated_time TIMESTAMP
+);
+
+CREATE TABLE student_answers (
+    homework_id INT NOT NULL,
+    student_id  INT NOT NULL,
+    question_id INT NOT NULL,
+    answer      VARCHAR(255),
+    score       INT,
+    PRIMARY KEY (homework_id, student_id, question_id)
+);
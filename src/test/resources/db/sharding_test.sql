@@ -0,0 +1,62 @@
+-- 分片测试用的表结构，只保留重分片和路由用到的列
+CREATE TABLE student_questions (
+    id         INT PRIMARY KEY,
+    student_id INT NOT NULL,
+    question   VARCHAR(255)
+);
+
+CREATE TABLE study_record (
+    id          INT PRIMARY KEY,
+    student_id  INT NOT NULL,
+    resource_id INT,
+    study_time  INT
+);
+
+CREATE TABLE ai_question (
+    id         INT PRIMARY KEY,
+    student_id INT NOT NULL,
+    question   VARCHAR(255)
+);
+
+CREATE TABLE student_homework (
+    id          INT PRIMARY KEY,
+    student_id  INT NOT NULL,
+    homework_id INT,
+    status      INT
+);
+
+CREATE TABLE student_answers (
+    homework_id INT NOT NULL,
+    student_id  INT NOT NULL,
+    question_id INT NOT NULL,
+    answer      VARCHAR(255),
+    score       INT,
+    PRIMARY KEY (homework_id, student_id, question_id)
+);
+
+CREATE TABLE global_setting (
+    name          VARCHAR(64) PRIMARY KEY,
+    setting_value VARCHAR(255)
+);
+
+CREATE TABLE shard_state (
+    id             INT PRIMARY KEY,
+    shard_count    INT NOT NULL,
+    target_count   INT,
+    freeze_unmoved TINYINT NOT NULL DEFAULT 0,
+    version        BIGINT NOT NULL
+);
+
+CREATE TABLE shard_moved (
+    student_id INT PRIMARY KEY
+);
+
+CREATE TABLE shard_frozen (
+    student_id INT PRIMARY KEY
+);
+
+CREATE TABLE shard_node (
+    node_id      VARCHAR(128) PRIMARY KEY,
+    version      BIGINT NOT NULL,
+    updated_time DATETIME NOT NULL
+);